@@ -0,0 +1,194 @@
+package com.aidn5.enchantedblockversion;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Class paces the logins after a restart, when all the players reconnect at
+ * once. It is a token bucket refilled by {@link Config#getAdmissionRate()}
+ * logins per second. The last {@link Config#getAdmissionPriorityBurst()}
+ * tokens are reserved for the priority versions, which cost the least to
+ * translate. Deferred clients are told when to retry, each one a token
+ * later than the previous one, so the retries do not come back at once.
+ *
+ * @author aidn5
+ *
+ * @see Config#isAdmissionEnabled()
+ */
+class AdmissionPacer {
+  /**
+   * Longest wait to tell a client. Also the amount of cached messages.
+   */
+  private static final int MAX_WAIT = 60;
+  private static final long MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(MAX_WAIT);
+
+  private final double tokensPerNano;
+  private final long nanosPerToken;
+  private final double burst;
+  private final double priorityBurst;
+  private final long windowEnd;
+  @Nonnull
+  private final boolean[] priority;
+  @Nonnull
+  private final String message;
+  @Nonnull
+  private final String[] messages = new String[MAX_WAIT + 1];
+
+  private double tokens;
+  private long lastRefill;
+  /**
+   * {@link System#nanoTime()} to tell the next deferred client to retry at.
+   */
+  private long nextRetry;
+
+  private final LongAdder admitted = new LongAdder();
+  private final LongAdder admittedPriority = new LongAdder();
+  private final LongAdder deferred = new LongAdder();
+
+  /**
+   * Constructor.
+   *
+   * @param config
+   *          the configuration to read the settings from.
+   * @param startTime
+   *          {@link System#nanoTime()} of the server start.
+   */
+  AdmissionPacer(@Nonnull Config config, long startTime) {
+    Objects.requireNonNull(config, "config must not be null");
+
+    this.tokensPerNano = config.getAdmissionRate() / (double) TimeUnit.SECONDS.toNanos(1);
+    this.nanosPerToken = tokensPerNano > 0
+        ? (long) Math.min(MAX_WAIT_NANOS, Math.ceil(1 / tokensPerNano)) : MAX_WAIT_NANOS;
+    this.priorityBurst = config.getAdmissionPriorityBurst();
+    this.burst = config.getAdmissionBurst() + priorityBurst;
+    this.windowEnd = config.getAdmissionWindow() <= 0 ? Long.MAX_VALUE
+        : startTime + TimeUnit.SECONDS.toNanos(config.getAdmissionWindow());
+    this.message = config.getAdmissionMessage();
+
+    this.priority = new boolean[ProtocolVersion.values().length];
+    Set<ProtocolVersion> priorityVersions = config.getAdmissionPriorityVersions();
+    for (ProtocolVersion version : priorityVersions) {
+      priority[version.ordinal()] = true;
+    }
+    if (config.getRecommendedVersion() != null) {
+      priority[config.getRecommendedVersion().ordinal()] = true;
+    }
+
+    this.tokens = burst;
+    this.lastRefill = startTime;
+    this.nextRetry = startTime;
+  }
+
+  /**
+   * Admit a login or defer it.
+   *
+   * @param protocolVersion
+   *          the protocol the client uses.
+   * @param now
+   *          the current {@link System#nanoTime()}.
+   * @return <code>0</code> if the login is admitted,
+   *         or the seconds the client should wait before retrying.
+   */
+  int admit(@Nonnull ProtocolVersion protocolVersion, long now) {
+    final boolean isPriority = priority[protocolVersion.ordinal()];
+
+    if (now - windowEnd > 0) {
+      admitted.increment();
+      return 0;
+    }
+
+    // the priority versions may use the reserved tokens
+    final double required = isPriority ? 1 : priorityBurst + 1;
+    final long wait;
+
+    synchronized (this) {
+      tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerNano);
+      lastRefill = now;
+
+      if (tokens >= required) {
+        tokens--;
+        wait = 0;
+      } else {
+        final long refill = tokensPerNano > 0
+            ? (long) Math.min(MAX_WAIT_NANOS, Math.ceil((required - tokens) / tokensPerNano))
+            : MAX_WAIT_NANOS;
+        if (nextRetry - (now + refill) < 0) {
+          nextRetry = now + refill;
+        }
+        wait = nextRetry - now;
+        if (wait < MAX_WAIT_NANOS) {
+          nextRetry += nanosPerToken;
+        }
+      }
+    }
+
+    if (wait == 0) {
+      admitted.increment();
+      if (isPriority) {
+        admittedPriority.increment();
+      }
+      return 0;
+    }
+
+    deferred.increment();
+    if (wait >= MAX_WAIT_NANOS) {
+      // the backlog is longer than the longest wait. spread the rest at random
+      return ThreadLocalRandom.current().nextInt(MAX_WAIT / 2, MAX_WAIT + 1);
+    }
+    return (int) Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1)
+        / TimeUnit.SECONDS.toNanos(1));
+  }
+
+  /**
+   * Get the message to show a deferred client.
+   *
+   * @param seconds
+   *          the seconds to wait returned by {@link #admit(ProtocolVersion, long)}.
+   * @return the message to show.
+   */
+  @Nonnull
+  String getDeferMessage(int seconds) {
+    final int index = Math.max(1, Math.min(MAX_WAIT, seconds));
+
+    String cached = messages[index];
+    if (cached == null) {
+      cached = message.replace("{seconds}", Integer.toString(index));
+      messages[index] = cached;
+    }
+    return cached;
+  }
+
+  /**
+   * Get the amount of the admitted logins.
+   *
+   * @return the amount of the admitted logins, including the priority ones.
+   */
+  long getAdmitted() {
+    return admitted.sum();
+  }
+
+  /**
+   * Get the amount of the admitted logins using a priority version.
+   *
+   * @return the amount of the admitted priority logins.
+   */
+  long getAdmittedPriority() {
+    return admittedPriority.sum();
+  }
+
+  /**
+   * Get the amount of the deferred logins.
+   *
+   * @return the amount of the deferred logins.
+   */
+  long getDeferred() {
+    return deferred.sum();
+  }
+}
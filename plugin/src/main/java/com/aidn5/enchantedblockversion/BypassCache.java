@@ -0,0 +1,83 @@
+package com.aidn5.enchantedblockversion;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Class remembers the bypass permissions of the players who logged in
+ * recently. It is used to answer queries about players whose
+ * {@link org.bukkit.entity.Player} instance does not exist on this server
+ * (e.g. queries from {@link PolicyQueryServer}).
+ *
+ * <p>The cache is bounded. The least recently used entries are dropped.
+ *
+ * @author aidn5
+ */
+class BypassCache {
+  static final byte BYPASS_NONE = 0;
+  static final byte BYPASS_BLACKLIST = 1;
+  static final byte BYPASS_ALL = 2;
+
+  @Nonnull
+  private final Map<String, Byte> entries;
+
+  /**
+   * Constructor.
+   *
+   * @param maxEntries
+   *          the maximum amount of players to remember.
+   */
+  BypassCache(final int maxEntries) {
+    this.entries = new LinkedHashMap<String, Byte>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Byte> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Remember the bypass permissions of a player.
+   *
+   * @param playerName
+   *          the name of the player.
+   * @param bypassAll
+   *          whether the player has {@link Permissions#BYPASS_ALL}.
+   * @param bypassBlacklist
+   *          whether the player has {@link Permissions#BYPASS_BLACKLIST}.
+   */
+  void put(@Nonnull String playerName, boolean bypassAll, boolean bypassBlacklist) {
+    final byte bypass = bypassAll ? BYPASS_ALL
+        : (bypassBlacklist ? BYPASS_BLACKLIST : BYPASS_NONE);
+
+    synchronized (entries) {
+      entries.put(playerName.toLowerCase(Locale.ROOT), bypass);
+    }
+  }
+
+  /**
+   * Get the remembered bypass of a player.
+   *
+   * @param playerName
+   *          the name of the player, or <code>null</code>.
+   * @return one of {@link #BYPASS_NONE}, {@link #BYPASS_BLACKLIST} and
+   *         {@link #BYPASS_ALL}. {@link #BYPASS_NONE} if the player is unknown.
+   */
+  byte get(@Nullable String playerName) {
+    if (playerName == null || playerName.isEmpty()) {
+      return BYPASS_NONE;
+    }
+
+    final Byte bypass;
+    synchronized (entries) {
+      bypass = entries.get(playerName.toLowerCase(Locale.ROOT));
+    }
+    return bypass != null ? bypass : BYPASS_NONE;
+  }
+}
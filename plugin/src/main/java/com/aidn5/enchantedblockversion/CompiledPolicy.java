@@ -0,0 +1,382 @@
+package com.aidn5.enchantedblockversion;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Immutable snapshot of the whitelist and blacklist, compiled into a flat
+ * table indexed by {@link ProtocolVersion#ordinal()}. Looking up a verdict
+ * does not allocate and does not touch any collection.
+ *
+ * <p>A new instance is created on every {@link Config#reload()}. Hold on to
+ * the instance for the whole decision to get a consistent answer.
+ *
+ * @author aidn5
+ *
+ * @see Config#getCompiledPolicy()
+ * @see Verdict
+ */
+public final class CompiledPolicy {
+  private static final byte FLAG_WHITELISTED = 1;
+  private static final byte FLAG_BLACKLISTED = 2;
+
+  @Nonnull
+  private static final ProtocolVersion[] VERSIONS = ProtocolVersion.values();
+
+  @Nonnull
+  private final byte[] flags;
+  @Nonnull
+  private final Set<ProtocolVersion> whitelistedVersions;
+  @Nonnull
+  private final Set<ProtocolVersion> blacklistedVersions;
+
+  /**
+   * Compile the given whitelist and blacklist.
+   *
+   * @param whitelistedVersions
+   *          all the whitelisted versions.
+   * @param blacklistedVersions
+   *          all the blacklisted versions. The blacklist overrides the whitelist.
+   *
+   * @throws NullPointerException
+   *           if any of the parameters is <code>null</code>.
+   */
+  public CompiledPolicy(@Nonnull Set<ProtocolVersion> whitelistedVersions,
+      @Nonnull Set<ProtocolVersion> blacklistedVersions) throws NullPointerException {
+
+    this(compile(whitelistedVersions, blacklistedVersions));
+  }
+
+  private CompiledPolicy(@Nonnull byte[] flags) {
+    this.flags = flags;
+
+    EnumSet<ProtocolVersion> whitelisted = EnumSet.noneOf(ProtocolVersion.class);
+    EnumSet<ProtocolVersion> blacklisted = EnumSet.noneOf(ProtocolVersion.class);
+    for (int i = 0; i < flags.length; i++) {
+      if ((flags[i] & FLAG_WHITELISTED) != 0) {
+        whitelisted.add(VERSIONS[i]);
+      }
+      if ((flags[i] & FLAG_BLACKLISTED) != 0) {
+        blacklisted.add(VERSIONS[i]);
+      }
+    }
+
+    this.whitelistedVersions = Collections.unmodifiableSet(whitelisted);
+    this.blacklistedVersions = Collections.unmodifiableSet(blacklisted);
+  }
+
+  @Nonnull
+  private static byte[] compile(@Nonnull Set<ProtocolVersion> whitelistedVersions,
+      @Nonnull Set<ProtocolVersion> blacklistedVersions) throws NullPointerException {
+
+    Objects.requireNonNull(whitelistedVersions, "whitelistedVersions must not be null");
+    Objects.requireNonNull(blacklistedVersions, "blacklistedVersions must not be null");
+
+    final byte[] flags = new byte[VERSIONS.length];
+    for (ProtocolVersion version : whitelistedVersions) {
+      flags[version.ordinal()] |= FLAG_WHITELISTED;
+    }
+    for (ProtocolVersion version : blacklistedVersions) {
+      flags[version.ordinal()] |= FLAG_BLACKLISTED;
+    }
+    return flags;
+  }
+
+  /**
+   * Compile the whitelist and blacklist of <code>config.yml</code> or of any
+   * other file of the same format. It is shared by the server and the proxy,
+   * so both read the settings the same way.
+   *
+   * @param settings
+   *          the lookup of the settings.
+   * @return the compiled policy.
+   *
+   * @throws RuntimeException
+   *           if any version is not valid.
+   */
+  @Nonnull
+  public static CompiledPolicy compile(@Nonnull SettingLookup settings)
+      throws RuntimeException {
+
+    final Set<ProtocolVersion> whitelistedVersions = new HashSet<>();
+    final Set<ProtocolVersion> blacklistedVersions = new HashSet<>();
+
+    // add whitelist protocols from "start" and "end" if enabled
+    if (isRangeEnabled(settings)) {
+      final ProtocolVersion whitelistStart = getRangeVersion(settings, "whitelist.start");
+      final ProtocolVersion whitelistEnd = getRangeVersion(settings, "whitelist.end");
+
+      ProtocolVersion[] betweenWhitelist = ProtocolVersion
+          .getAllBetween(whitelistStart, whitelistEnd);
+
+      if (betweenWhitelist == null || betweenWhitelist.length == 0) {
+        throw new RuntimeException("could not load whitelisted versions between: "
+            + whitelistStart + " and " + whitelistEnd);
+      }
+      whitelistedVersions.addAll(Arrays.asList(betweenWhitelist));
+    }
+
+    whitelistedVersions.addAll(getVersions(settings, "whitelist.allowVersions"));
+    blacklistedVersions.addAll(getVersions(settings, "blacklist"));
+
+    return new CompiledPolicy(whitelistedVersions, blacklistedVersions);
+  }
+
+  /**
+   * Describe the whitelisted versions of the settings for the placeholder
+   * <code>{range}</code>.
+   *
+   * @param settings
+   *          the lookup of the settings.
+   * @return the description of the whitelisted versions.
+   *
+   * @throws RuntimeException
+   *           if any version is not valid.
+   *
+   * @see MessageRenderer#describeRange(ProtocolVersion, ProtocolVersion,
+   *      java.util.Collection)
+   */
+  @Nonnull
+  public static String describeWhitelist(@Nonnull SettingLookup settings)
+      throws RuntimeException {
+
+    final boolean rangeEnabled = isRangeEnabled(settings);
+    return MessageRenderer.describeRange(
+        rangeEnabled ? getRangeVersion(settings, "whitelist.start") : null,
+        rangeEnabled ? getRangeVersion(settings, "whitelist.end") : null,
+        getVersions(settings, "whitelist.allowVersions"));
+  }
+
+  private static boolean isRangeEnabled(@Nonnull SettingLookup settings) {
+    return Boolean.TRUE.equals(settings.get("whitelist.enableStartEnd"));
+  }
+
+  /*
+   * Numbers are accepted as well, since YAML reads 1.8 as a number.
+   */
+  @Nonnull
+  private static ProtocolVersion getRangeVersion(@Nonnull SettingLookup settings,
+      @Nonnull String path) throws RuntimeException {
+
+    final Object value = settings.get(path);
+    final ProtocolVersion version = value != null
+        ? ProtocolVersions.parse(String.valueOf(value)) : null;
+
+    if (version == null) {
+      throw new RuntimeException("is the " + path + " version valid? '"
+          + String.valueOf(value) + "' is given.");
+    }
+    return version;
+  }
+
+  @Nonnull
+  private static Set<ProtocolVersion> getVersions(@Nonnull SettingLookup settings,
+      @Nonnull String path) throws RuntimeException {
+
+    final Object value = settings.get(path);
+    if (!(value instanceof List)) {
+      return Collections.emptySet();
+    }
+
+    final Set<ProtocolVersion> versions = new LinkedHashSet<>();
+    for (Object element : (List<?>) value) {
+      final ProtocolVersion version = element != null
+          ? ProtocolVersions.parse(String.valueOf(element)) : null;
+
+      if (version == null) {
+        throw new RuntimeException("is " + path + " valid?"
+            + " could not understand '" + element + "'");
+      }
+      versions.add(version);
+    }
+    return versions;
+  }
+
+  /**
+   * Decode a policy written by {@link #encode(ByteBuffer)}. Versions unknown to
+   * the installed ProtocolSupport are ignored.
+   *
+   * @param in
+   *          the buffer to read from.
+   * @return the decoded policy.
+   *
+   * @throws BufferUnderflowException
+   *           if the buffer ends before the policy does.
+   */
+  @Nonnull
+  static CompiledPolicy decode(@Nonnull ByteBuffer in) throws BufferUnderflowException {
+    final byte[] flags = new byte[VERSIONS.length];
+    final int count = in.getShort() & 0xFFFF;
+
+    for (int i = 0; i < count; i++) {
+      byte[] name = new byte[in.get() & 0xFF];
+      in.get(name);
+      byte flag = in.get();
+
+      try {
+        ProtocolVersion version = ProtocolVersion
+            .valueOf(new String(name, StandardCharsets.US_ASCII));
+        flags[version.ordinal()] = (byte) (flag & (FLAG_WHITELISTED | FLAG_BLACKLISTED));
+      } catch (IllegalArgumentException ignored) {
+        // the version is not supported by the installed ProtocolSupport
+      }
+    }
+
+    return new CompiledPolicy(flags);
+  }
+
+  /**
+   * Encode the policy into a compact binary form. The versions are written by
+   * their names, since the ordinals differ between ProtocolSupport builds.
+   *
+   * @param out
+   *          the buffer to write to.
+   *
+   * @throws BufferOverflowException
+   *           if the buffer does not have enough space.
+   */
+  void encode(@Nonnull ByteBuffer out) throws BufferOverflowException {
+    int count = 0;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] != 0) {
+        count++;
+      }
+    }
+
+    out.putShort((short) count);
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i] != 0) {
+        byte[] name = VERSIONS[i].name().getBytes(StandardCharsets.US_ASCII);
+        out.put((byte) name.length);
+        out.put(name);
+        out.put(flags[i]);
+      }
+    }
+  }
+
+  /**
+   * Get all the whitelisted versions.
+   *
+   * @return an unmodifiable view of the whitelisted versions.
+   */
+  @Nonnull
+  public Set<ProtocolVersion> getWhitelistedVersions() {
+    return whitelistedVersions;
+  }
+
+  /**
+   * Get all the blacklisted versions.
+   *
+   * @return an unmodifiable view of the blacklisted versions.
+   */
+  @Nonnull
+  public Set<ProtocolVersion> getBlacklistedVersions() {
+    return blacklistedVersions;
+  }
+
+  /**
+   * Check if a protocol is whitelisted.
+   *
+   * @param protocolVersion
+   *          the protocol to check.
+   * @return <code>true</code> if it is whitelisted.
+   */
+  public boolean isWhitelisted(@Nonnull ProtocolVersion protocolVersion) {
+    return (flags[protocolVersion.ordinal()] & FLAG_WHITELISTED) != 0;
+  }
+
+  /**
+   * Check if a protocol is blacklisted.
+   *
+   * @param protocolVersion
+   *          the protocol to check.
+   * @return <code>true</code> if it is blacklisted.
+   */
+  public boolean isBlacklisted(@Nonnull ProtocolVersion protocolVersion) {
+    return (flags[protocolVersion.ordinal()] & FLAG_BLACKLISTED) != 0;
+  }
+
+  /**
+   * Get the verdict for a protocol, assuming the player has no bypass.
+   *
+   * @param protocolVersion
+   *          the protocol to check.
+   * @return the verdict, never {@link Verdict#BYPASSED}.
+   */
+  @Nonnull
+  public Verdict getVerdict(@Nonnull ProtocolVersion protocolVersion) {
+    return getVerdict(protocolVersion, false, false);
+  }
+
+  /**
+   * Get the verdict for a protocol used by a subject. The permissions are only
+   * looked up if the protocol is not allowed, since most of the logins use an
+   * allowed protocol and permission backends are expensive.
+   *
+   * @param <T>
+   *          the type of the subject.
+   * @param protocolVersion
+   *          the protocol the subject uses.
+   * @param subject
+   *          the subject to look up its bypasses.
+   * @param permissions
+   *          the lookup of the bypass permissions.
+   * @return the verdict.
+   */
+  @Nonnull
+  public <T> Verdict getVerdict(@Nonnull ProtocolVersion protocolVersion,
+      @Nonnull T subject, @Nonnull PermissionLookup<T> permissions) {
+
+    final Verdict verdict = getVerdict(protocolVersion, false, false);
+    if (!verdict.isDenied()) {
+      return verdict;
+    }
+
+    final boolean bypassAll = permissions.hasPermission(subject, Permissions.BYPASS_ALL);
+    final boolean bypassBlacklist = !bypassAll && verdict == Verdict.BLACKLISTED
+        && permissions.hasPermission(subject, Permissions.BYPASS_BLACKLIST);
+
+    return getVerdict(protocolVersion, bypassAll, bypassBlacklist);
+  }
+
+  /**
+   * Get the verdict for a protocol used by a player with the given bypasses.
+   * The blacklist is checked first to override the whitelist.
+   *
+   * @param protocolVersion
+   *          the protocol the player uses.
+   * @param bypassAll
+   *          whether the player has {@link Permissions#BYPASS_ALL}.
+   * @param bypassBlacklist
+   *          whether the player has {@link Permissions#BYPASS_BLACKLIST}.
+   * @return the verdict.
+   */
+  @Nonnull
+  public Verdict getVerdict(@Nonnull ProtocolVersion protocolVersion,
+      boolean bypassAll, boolean bypassBlacklist) {
+
+    final byte flag = flags[protocolVersion.ordinal()];
+
+    if ((flag & FLAG_BLACKLISTED) != 0) {
+      return bypassAll || bypassBlacklist ? Verdict.BYPASSED : Verdict.BLACKLISTED;
+    }
+    if ((flag & FLAG_WHITELISTED) == 0) {
+      return bypassAll ? Verdict.BYPASSED : Verdict.NOT_WHITELISTED;
+    }
+    return Verdict.ALLOWED;
+  }
+}
@@ -0,0 +1,692 @@
+
+package com.aidn5.enchantedblockversion;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Class manages, parses and processes the configuration and provides methods to
+ * access the settings. <b>{@link #reload()} must be done before accessing the
+ * settings.</b>
+ *
+ * @author aidn5
+ */
+public class Config {
+  @Nonnull
+  private final EnchantedBlockVersion pluginInstace;
+
+  private boolean whitelistEnableStartEnd = false;
+  @Nullable
+  private ProtocolVersion whitelistStart = null;
+  @Nullable
+  private ProtocolVersion whitelistEnd = null;
+
+  @Nonnull
+  private volatile CompiledPolicy compiledPolicy = new CompiledPolicy(
+      Collections.emptySet(), Collections.emptySet());
+  @Nonnull
+  private CompiledPolicy configuredPolicy = compiledPolicy;
+  @Nullable
+  private String sharedPolicyFile = null;
+
+  @Nonnull
+  private String whitelistMessage = "";
+  @Nonnull
+  private String blacklistMessage = "";
+
+  @Nonnull
+  private String bypassMessage = "";
+  private int repeatBypassMessage = 600;
+
+  private ProtocolVersion recommendedVersion = null;
+  @Nonnull
+  private String recommendMessage = "";
+  @Nullable
+  private MessageRenderer messageRenderer = null;
+
+  private boolean trustProxy = false;
+
+  private boolean historyEnabled = false;
+
+  private boolean admissionEnabled = false;
+  private double admissionRate = 20;
+  private int admissionBurst = 40;
+  private int admissionPriorityBurst = 20;
+  private int admissionWindow = 300;
+  @Nonnull
+  private Set<ProtocolVersion> admissionPriorityVersions = Collections.emptySet();
+  @Nonnull
+  private String admissionMessage = "";
+
+  private boolean queryServiceEnabled = false;
+  @Nonnull
+  private String queryServiceAddress = "127.0.0.1";
+  private int queryServicePort = 0;
+
+  /**
+   * Constructor. Use {@link #reload()} to initiate the settings on the first run.
+   *
+   * @param pluginInstace
+   *          an instance of the plugin to use {@link JavaPlugin#getConfig()}.
+   */
+  Config(@Nonnull EnchantedBlockVersion pluginInstace) {
+    this.pluginInstace = Objects.requireNonNull(pluginInstace);
+  }
+
+  /**
+   * Check if the whitelist version selector is enabled. It is used to select
+   * multiple versions between two versions like selecting all version between 1.8
+   * and 1.14.
+   *
+   * @return <code>true</code> if it is enabled.
+   */
+  public boolean isWhitelistStartEndEnabled() {
+    return whitelistEnableStartEnd;
+  }
+
+  /**
+   * Get the start version of the whitelist, if
+   * {@link #isWhitelistStartEndEnabled()}.
+   *
+   * @return the start (oldest allowed protocol) of the whitelisted protocols,
+   *         or <code>null</code> if it is disabled.
+   */
+  @Nullable
+  public ProtocolVersion getWhitelistStart() {
+    return whitelistStart;
+  }
+
+  /**
+   * get the end version of the whitelist, if
+   * {@link #isWhitelistStartEndEnabled()}.
+   *
+   * @return the end (newest allowed protocol) of the whitelisted protocols,
+   *         or <code>null</code> if it is disabled.
+   */
+  @Nullable
+  public ProtocolVersion getWhitelistEnd() {
+    return whitelistEnd;
+  }
+
+  /**
+   * Create a new instance with all the blacklisted versions. Use
+   * {@link PolicyService#getPolicy()} to read them without copying.
+   *
+   * @return a separated instance contains all the blacklisted versions.
+   */
+  @Nonnull
+  public Set<ProtocolVersion> getBlacklistVersions() {
+    Set<ProtocolVersion> list = EnumSet.noneOf(ProtocolVersion.class);
+    list.addAll(compiledPolicy.getBlacklistedVersions());
+    return list;
+  }
+
+  /**
+   * Create a new instance with all the whitelisted versions. Use
+   * {@link PolicyService#getPolicy()} to read them without copying.
+   *
+   * @return a separated instance contains all the whitelisted versions.
+   */
+  @Nonnull
+  public Set<ProtocolVersion> getWhitelistedVersions() {
+    Set<ProtocolVersion> list = EnumSet.noneOf(ProtocolVersion.class);
+    list.addAll(compiledPolicy.getWhitelistedVersions());
+    return list;
+  }
+
+  /**
+   * Get the interval in seconds for the message to send to player's chat,
+   * reminding them to change their version, even if they have bypass.
+   *
+   * <p>If the number is <code>0</code>, it means the message should not be
+   * repeated. <code>-1</code> means the message should not be sent at all.
+   *
+   * @return
+   *         the interval in seconds for the repeat message.
+   */
+  public int getRepeatBypassMessage() {
+    return repeatBypassMessage;
+  }
+
+  /**
+   * Get the message to send to the player on kick if they are using a blacklisted
+   * version (even if it is set on the whitelist).
+   *
+   * <p>This is the template of the default locale. The placeholders are not
+   * replaced and the messages of the other locales are ignored.
+   *
+   * @return the message to show on blacklist.
+   * @deprecated the messages are localized. Use
+   *             {@link #getMessage(MessageKind, String, ProtocolVersion)}
+   *             with {@link MessageKind#BLACKLIST}.
+   */
+  @Deprecated
+  @Nonnull
+  public String getBlacklistMessage() {
+    return blacklistMessage;
+  }
+
+  /**
+   * Get the message to send to the player's chat, if they are using a
+   * non-whitelisted version, reminding them to change the version.
+   *
+   * <p>This is the template of the default locale. The placeholders are not
+   * replaced and the messages of the other locales are ignored.
+   *
+   * @return the message to show to the player.
+   * @deprecated the messages are localized. Use
+   *             {@link #getMessage(MessageKind, String, ProtocolVersion)}
+   *             with {@link MessageKind#BYPASS}.
+   */
+  @Deprecated
+  @Nonnull
+  public String getBypassMessage() {
+    return bypassMessage;
+  }
+
+  /**
+   * Get the message to send to the player on kick if the version they are using
+   * is not whitelisted.
+   *
+   * <p>This is the template of the default locale. The placeholders are not
+   * replaced and the messages of the other locales are ignored.
+   *
+   * @return the message to show to the player on kick.
+   *
+   * @see #getBlacklistMessage()
+   * @deprecated the messages are localized. Use
+   *             {@link #getMessage(MessageKind, String, ProtocolVersion)}
+   *             with {@link MessageKind#WHITELIST}.
+   */
+  @Deprecated
+  @Nonnull
+  public String getWhitelistMessage() {
+    return whitelistMessage;
+  }
+
+  /**
+   * Get the recommended version the player should use on the server for the
+   * utmost experience.
+   *
+   * @return
+   *         the recommend minecraft version the
+   *         player should use on the server,
+   *         or <code>null</code> if it is disabled.
+   */
+  @Nullable
+  public ProtocolVersion getRecommendedVersion() {
+    return recommendedVersion;
+  }
+
+  /**
+   * Get the message to show in the player's chat if they are using a whitelisted
+   * version, but not the recommended one.
+   *
+   * <p>This is the template of the default locale. The placeholders are not
+   * replaced and the messages of the other locales are ignored.
+   *
+   * @return
+   *         the message to show to the player.
+   * @deprecated the messages are localized. Use
+   *             {@link #getMessage(MessageKind, String, ProtocolVersion)}
+   *             with {@link MessageKind#RECOMMEND}.
+   */
+  @Deprecated
+  @Nonnull
+  public String getRecommendMessage() {
+    return recommendMessage;
+  }
+
+  /**
+   * Get the compiled whitelist and blacklist, used to decide the verdict of a
+   * protocol without any allocation. A new instance is created on every reload
+   * and whenever a new policy is loaded from {@link #getSharedPolicyFile()}.
+   *
+   * @return the compiled policy of the current configuration.
+   */
+  @Nonnull
+  public CompiledPolicy getCompiledPolicy() {
+    return compiledPolicy;
+  }
+
+  /**
+   * Replace the compiled policy in one step,
+   * e.g. with the one published in the shared file.
+   *
+   * @param compiledPolicy
+   *          the new policy to use.
+   */
+  void applyCompiledPolicy(@Nonnull CompiledPolicy compiledPolicy) {
+    this.compiledPolicy = Objects.requireNonNull(compiledPolicy);
+  }
+
+  /**
+   * Get the policy compiled from <code>config.yml</code>. It differs from
+   * {@link #getCompiledPolicy()} when another policy is applied over it,
+   * e.g. the one of the shared file.
+   *
+   * @return the policy of the last reload of <code>config.yml</code>.
+   */
+  @Nonnull
+  CompiledPolicy getConfiguredPolicy() {
+    return configuredPolicy;
+  }
+
+  /**
+   * Get the path of the file used to share the compiled policy between
+   * multiple servers. A relative path is relative to the plugin's folder.
+   *
+   * @return the path of the shared file,
+   *         or <code>null</code> if sharing is disabled.
+   *
+   * @see SharedPolicyFile
+   */
+  @Nullable
+  public String getSharedPolicyFile() {
+    return sharedPolicyFile;
+  }
+
+  /**
+   * Check if the decision of the proxy module is trusted. If it is, the proxy
+   * has already denied the players who are not allowed to join, and whoever
+   * reaches this server is treated as if they have a bypass.
+   *
+   * @return <code>true</code> if the proxy decision is trusted.
+   */
+  public boolean isProxyTrusted() {
+    return trustProxy;
+  }
+
+  /**
+   * Check if the history of the online versions should be recorded.
+   *
+   * @return <code>true</code> if it is enabled.
+   *
+   * @see VersionHistory
+   */
+  public boolean isHistoryEnabled() {
+    return historyEnabled;
+  }
+
+  /**
+   * Check if the logins should be paced after a restart.
+   *
+   * @return <code>true</code> if it is enabled.
+   *
+   * @see AdmissionPacer
+   */
+  public boolean isAdmissionEnabled() {
+    return admissionEnabled;
+  }
+
+  /**
+   * Get the amount of logins per second to admit while pacing.
+   *
+   * @return the logins per second.
+   */
+  public double getAdmissionRate() {
+    return admissionRate;
+  }
+
+  /**
+   * Get the amount of logins which can be admitted at once before the pacing
+   * starts to defer them.
+   *
+   * @return the burst of the logins.
+   */
+  public int getAdmissionBurst() {
+    return admissionBurst;
+  }
+
+  /**
+   * Get the amount of logins reserved for the priority versions on top of
+   * {@link #getAdmissionBurst()}.
+   *
+   * @return the reserved burst of the priority versions.
+   */
+  public int getAdmissionPriorityBurst() {
+    return admissionPriorityBurst;
+  }
+
+  /**
+   * Get the seconds after the start of the server in which the logins are
+   * paced. <code>0</code> means the logins are always paced.
+   *
+   * @return the pacing window in seconds.
+   */
+  public int getAdmissionWindow() {
+    return admissionWindow;
+  }
+
+  /**
+   * Get the versions which are admitted first while pacing, in addition to
+   * {@link #getRecommendedVersion()}.
+   *
+   * @return an unmodifiable set of the priority versions.
+   */
+  @Nonnull
+  public Set<ProtocolVersion> getAdmissionPriorityVersions() {
+    return admissionPriorityVersions;
+  }
+
+  /**
+   * Get the message to show a deferred client. <code>{seconds}</code> is
+   * replaced with the time to wait.
+   *
+   * @return the message to show on deferring.
+   */
+  @Nonnull
+  public String getAdmissionMessage() {
+    return admissionMessage;
+  }
+
+  /**
+   * Check if the loopback query service is enabled, which allows co-located
+   * proxies to ask for the verdict of a version.
+   *
+   * @return <code>true</code> if it is enabled.
+   *
+   * @see PolicyQueryServer
+   */
+  public boolean isQueryServiceEnabled() {
+    return queryServiceEnabled;
+  }
+
+  /**
+   * Get the loopback address the query service binds to.
+   *
+   * @return the address of the query service.
+   */
+  @Nonnull
+  public String getQueryServiceAddress() {
+    return queryServiceAddress;
+  }
+
+  /**
+   * Get the port the query service binds to.
+   *
+   * @return the port of the query service.
+   */
+  public int getQueryServicePort() {
+    return queryServicePort;
+  }
+
+  /**
+   * Render a message for a player. The placeholders <code>{version}</code>,
+   * <code>{recommended}</code> and <code>{range}</code> are replaced and the
+   * result is cached till the next reload.
+   *
+   * @param kind
+   *          the kind of the message.
+   * @param locale
+   *          the locale of the player (e.g. "de_de"),
+   *          or <code>null</code> to use the default messages.
+   * @param version
+   *          the version the player uses.
+   * @return the rendered message.
+   *
+   * @see MessageRenderer
+   */
+  @Nonnull
+  public String getMessage(@Nonnull MessageKind kind, @Nullable String locale,
+      @Nonnull ProtocolVersion version) {
+
+    return messageRenderer.render(kind, locale, version);
+  }
+
+  /**
+   * Get the used instance with all the blacklisted versions.
+   *
+   * @return main instance contains all the blacklisted versions.
+   */
+  @Nonnull
+  Set<ProtocolVersion> getBlacklistVersionsInstance() {
+    return compiledPolicy.getBlacklistedVersions();
+  }
+
+  /**
+   * Get the used instance with all the whitelisted versions.
+   *
+   * @return main instance contains all the whitelisted versions.
+   */
+  @Nonnull
+  Set<ProtocolVersion> getWhitelistedVersionsInstance() {
+    return compiledPolicy.getWhitelistedVersions();
+  }
+
+  /**
+   * Compile the whitelist and blacklist of a configuration. It is used for
+   * <code>config.yml</code> and for any other file of the same format, like
+   * the candidate policy of {@link ShadowPolicy}. The proxy compiles the same
+   * settings by {@link CompiledPolicy#compile(SettingLookup)}.
+   *
+   * @param config
+   *          the configuration to compile.
+   * @return the compiled policy.
+   *
+   * @throws RuntimeException
+   *           if any version is not valid.
+   */
+  @Nonnull
+  static CompiledPolicy compilePolicy(@Nonnull ConfigurationSection config)
+      throws RuntimeException {
+
+    return CompiledPolicy.compile(config::get);
+  }
+
+  /**
+   * Reload the configuration and start parse and create the data and settings,
+   * then apply them if no exception is thrown. <b>Reloading the configurations
+   * does not guarantee it to be applied. Reload the plugin instead</b>
+   *
+   * @throws RuntimeException
+   *           if any error occurs.
+   *
+   * @see #reload(CompiledPolicy)
+   */
+  void reload() throws RuntimeException {
+    reload(null);
+  }
+
+  /**
+   * Reload the configuration like {@link #reload()}, but apply the given
+   * policy instead of the compiled whitelist and blacklist. The policy is
+   * swapped once, so no login is decided by the policy of
+   * <code>config.yml</code> in between.
+   *
+   * @param policyOverride
+   *          the policy to apply,
+   *          or <code>null</code> to apply the one of <code>config.yml</code>.
+   *
+   * @throws RuntimeException
+   *           if any error occurs.
+   */
+  /*
+   * - contains magic values of the configurations.
+   * used there, since it is not used anywhere else.
+   * - class variables are not touched during the reloading,
+   * to avoid messing up on exception. They will be set at
+   * the end of the method if the reload is success.
+   * - whitelistStartEndSelector will be fused with
+   * the individual whitelist versions to create one list.
+   */
+  void reload(@Nullable CompiledPolicy policyOverride) throws RuntimeException {
+    this.pluginInstace.reloadConfig();
+
+    final FileConfiguration config = this.pluginInstace.getConfig();
+    final boolean whitelistEnableStartEnd;
+    final ProtocolVersion whitelistStart;
+    final ProtocolVersion whitelistEnd;
+    final String whitelistMessage;
+    final String blacklistMessage;
+    final String bypassMessage;
+    final ProtocolVersion recommendedVersion;
+    final String recommendMessage;
+    final String queryServiceAddress;
+    final Set<ProtocolVersion> tempAdmissionPriorityVersions = EnumSet
+        .noneOf(ProtocolVersion.class);
+    final String admissionMessage;
+
+    final CompiledPolicy compiledPolicy = compilePolicy(config);
+
+    // the start and the end are already validated while compiling
+    if (whitelistEnableStartEnd = config.getBoolean("whitelist.enableStartEnd")) {
+      whitelistStart = EnchantedBlockVersion.getProtocol(config.getString("whitelist.start"));
+      whitelistEnd = EnchantedBlockVersion.getProtocol(config.getString("whitelist.end"));
+
+    } else {
+      whitelistStart = null;
+      whitelistEnd = null;
+    }
+
+
+    // load the messages
+    whitelistMessage = Objects.requireNonNull(
+        config.getString("whitelistMessage"),
+        "whitelistMessage in config.yml must not be null.");
+
+    blacklistMessage = Objects.requireNonNull(
+        config.getString("blacklistMessage"),
+        "whitelistMessage in config.yml must not be null.");
+
+    bypassMessage = Objects.requireNonNull(
+        config.getString("bypassMessage"),
+        "whitelistMessage in config.yml must not be null.");
+
+
+    recommendedVersion = EnchantedBlockVersion
+        .getProtocol(config.getString("recommended.version"));
+    recommendMessage = Objects.requireNonNull(
+        config.getString("recommended.message"),
+        "recommended.message must not be null.");
+
+
+    // the top level messages are the default locale
+    final Map<String, Map<MessageKind, String>> templates = new HashMap<>();
+    final Map<MessageKind, String> defaultTemplates = new EnumMap<>(MessageKind.class);
+    defaultTemplates.put(MessageKind.WHITELIST, whitelistMessage);
+    defaultTemplates.put(MessageKind.BLACKLIST, blacklistMessage);
+    defaultTemplates.put(MessageKind.BYPASS, bypassMessage);
+    defaultTemplates.put(MessageKind.RECOMMEND, recommendMessage);
+    templates.put(MessageRenderer.DEFAULT_LOCALE, defaultTemplates);
+
+    final ConfigurationSection messagesSection = config.getConfigurationSection("messages");
+    if (messagesSection != null) {
+      for (String locale : messagesSection.getKeys(false)) {
+        if (locale.equalsIgnoreCase(MessageRenderer.DEFAULT_LOCALE)) {
+          throw new RuntimeException("messages." + locale + " is not allowed."
+              + " the top level messages are the default messages.");
+        }
+
+        final ConfigurationSection localeSection = messagesSection
+            .getConfigurationSection(locale);
+        if (localeSection == null) {
+          throw new RuntimeException("is messages." + locale + " valid?"
+              + " it must contain the messages of the locale.");
+        }
+
+        final Map<MessageKind, String> localeTemplates = new EnumMap<>(MessageKind.class);
+        for (MessageKind kind : MessageKind.values()) {
+          final String template = localeSection.getString(kind.getKey());
+          if (template != null) {
+            localeTemplates.put(kind, template);
+          }
+        }
+        templates.put(locale, localeTemplates);
+      }
+    }
+
+    for (Map<MessageKind, String> localeTemplates : templates.values()) {
+      localeTemplates.replaceAll((kind, template) -> ChatColor
+          .translateAlternateColorCodes('&', template));
+    }
+
+    final MessageRenderer messageRenderer = new MessageRenderer(templates,
+        recommendedVersion != null ? recommendedVersion.getName() : "",
+        CompiledPolicy.describeWhitelist(config::get));
+
+
+    // add the versions admitted first while pacing
+    List<String> priorityVersions = config.getStringList("admission.priorityVersions");
+    for (String version : priorityVersions) {
+      ProtocolVersion protocolVersion = EnchantedBlockVersion.getProtocol(version);
+
+      if (protocolVersion == null) {
+        throw new RuntimeException("is admission.priorityVersions valid?"
+            + " could not understand '" + version + "'");
+      }
+
+      tempAdmissionPriorityVersions.add(protocolVersion);
+    }
+
+    if (config.getDouble("admission.rate", 20) <= 0) {
+      throw new RuntimeException("admission.rate must be bigger than 0.");
+    }
+
+    admissionMessage = Objects.requireNonNull(
+        config.getString("admission.message"),
+        "admission.message must not be null.");
+
+
+    queryServiceAddress = Objects.requireNonNull(
+        config.getString("queryService.address", "127.0.0.1"),
+        "queryService.address must not be null.");
+
+
+    // after finishing reloading without any exception,
+    // setting the variables and return
+    this.whitelistEnableStartEnd = whitelistEnableStartEnd;
+    this.whitelistStart = whitelistStart;
+    this.whitelistEnd = whitelistEnd;
+
+    this.configuredPolicy = compiledPolicy;
+    this.compiledPolicy = policyOverride != null ? policyOverride : compiledPolicy;
+
+    this.whitelistMessage = ChatColor.translateAlternateColorCodes('&', whitelistMessage);
+    this.blacklistMessage = ChatColor.translateAlternateColorCodes('&', blacklistMessage);
+
+    this.bypassMessage = ChatColor.translateAlternateColorCodes('&', bypassMessage);
+    this.repeatBypassMessage = config.getInt("repeatBypassMessage");
+
+    this.recommendedVersion = recommendedVersion;
+    this.recommendMessage = ChatColor.translateAlternateColorCodes('&', recommendMessage);
+    this.messageRenderer = messageRenderer;
+
+    this.trustProxy = config.getBoolean("trustProxy", false);
+
+    String sharedPolicyFile = config.getString("sharedPolicy.file", "");
+    this.sharedPolicyFile = sharedPolicyFile == null || sharedPolicyFile.isEmpty()
+        ? null : sharedPolicyFile;
+
+    this.historyEnabled = config.getBoolean("history.enabled", false);
+
+    this.admissionEnabled = config.getBoolean("admission.enabled", false);
+    this.admissionRate = config.getDouble("admission.rate", 20);
+    this.admissionBurst = Math.max(0, config.getInt("admission.burst", 40));
+    this.admissionPriorityBurst = Math.max(0, config.getInt("admission.priorityBurst", 20));
+    this.admissionWindow = config.getInt("admission.window", 300);
+    this.admissionPriorityVersions = Collections.unmodifiableSet(tempAdmissionPriorityVersions);
+    this.admissionMessage = ChatColor.translateAlternateColorCodes('&', admissionMessage);
+
+    this.queryServiceEnabled = config.getBoolean("queryService.enabled", false);
+    this.queryServiceAddress = queryServiceAddress;
+    this.queryServicePort = config.getInt("queryService.port", 0);
+  }
+}
@@ -0,0 +1,268 @@
+package com.aidn5.enchantedblockversion;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import protocolsupport.api.ProtocolType;
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Class handles the administration command <code>/ebv</code>.
+ *
+ * @author aidn5
+ *
+ * @see Permissions#ADMIN
+ */
+class EbvCommand implements CommandExecutor {
+  @Nonnull
+  private final EnchantedBlockVersion parentInstance;
+
+  EbvCommand(@Nonnull EnchantedBlockVersion parentInstance) throws NullPointerException {
+    this.parentInstance = Objects
+        .requireNonNull(parentInstance, "parentInstance must not be null");
+  }
+
+  @Override
+  public boolean onCommand(CommandSender sender, Command command, String label,
+      String[] args) {
+
+    if (args.length == 0) {
+      return false;
+    }
+
+    switch (args[0].toLowerCase(Locale.ROOT)) {
+      case "reload":
+        reload(sender);
+        return true;
+
+      case "publish":
+        publish(sender);
+        return true;
+
+      case "metrics":
+        metrics(sender);
+        return true;
+
+      case "shadow":
+        if (args.length < 2) {
+          return false;
+        }
+        return shadow(sender, args);
+
+      case "history":
+        if (args.length != 2) {
+          return false;
+        }
+        history(sender, args[1]);
+        return true;
+
+      default:
+        return false;
+    }
+  }
+
+  private void reload(@Nonnull CommandSender sender) {
+    try {
+      final boolean sharedPolicy = parentInstance.reloadSettings();
+      sender.sendMessage(ChatColor.GREEN + "config.yml has been reloaded.");
+      if (sharedPolicy) {
+        sender.sendMessage(ChatColor.YELLOW + "the shared policy is still in effect instead of"
+            + " the whitelist and blacklist of config.yml. use /ebv publish to apply them.");
+      }
+
+    } catch (RuntimeException e) {
+      sender.sendMessage(ChatColor.RED + "could not reload config.yml: " + e.getMessage());
+    }
+  }
+
+  private void publish(@Nonnull CommandSender sender) {
+    try {
+      long generation = parentInstance.publishPolicy();
+      sender.sendMessage(ChatColor.GREEN + "the policy has been published as generation "
+          + generation + ".");
+
+    } catch (IllegalStateException | IOException e) {
+      sender.sendMessage(ChatColor.RED + "could not publish the policy: " + e.getMessage());
+
+    } catch (RuntimeException e) {
+      sender.sendMessage(ChatColor.RED + "could not reload config.yml: " + e.getMessage());
+    }
+  }
+
+  private boolean shadow(@Nonnull CommandSender sender, @Nonnull String[] args) {
+    switch (args[1].toLowerCase(Locale.ROOT)) {
+      case "load":
+        if (args.length != 3) {
+          return false;
+        }
+        try {
+          parentInstance.loadShadowPolicy(args[2]);
+          sender.sendMessage(ChatColor.GREEN + "the candidate policy from '" + args[2]
+              + "' is evaluated on every login from now on.");
+
+        } catch (RuntimeException e) {
+          sender.sendMessage(ChatColor.RED + "could not load the candidate policy: "
+              + e.getMessage());
+        }
+        return true;
+
+      case "clear":
+        parentInstance.clearShadowPolicy();
+        sender.sendMessage(ChatColor.GREEN + "the candidate policy is no longer evaluated.");
+        return true;
+
+      case "report":
+        shadowReport(sender);
+        return true;
+
+      default:
+        return false;
+    }
+  }
+
+  private void shadowReport(@Nonnull CommandSender sender) {
+    final ShadowPolicy shadowPolicy = parentInstance.getShadowPolicy();
+    if (shadowPolicy == null) {
+      sender.sendMessage(ChatColor.RED + "no candidate policy is loaded."
+          + " use /ebv shadow load <file>");
+      return;
+    }
+
+    final long minutes = (System.currentTimeMillis() - shadowPolicy.getLoadedAt()) / 60_000L;
+    sender.sendMessage(ChatColor.GOLD + "Candidate '" + shadowPolicy.getSource()
+        + "' compared to the active policy since " + minutes + " minutes");
+
+    /*
+     * ProtocolSupport translates every version except the one the server
+     * runs, so the changed logins of the other versions are the logins
+     * moving onto or off the translation.
+     */
+    final ProtocolVersion nativeVersion = ProtocolVersion.getLatest(ProtocolType.PC);
+
+    long totalEvaluated = 0;
+    long totalDeny = 0;
+    long totalAllow = 0;
+    long totalOntoTranslation = 0;
+    long totalOffTranslation = 0;
+    for (ProtocolVersion version : ProtocolVersion.values()) {
+      final long evaluated = shadowPolicy.getEvaluated(version);
+      if (evaluated == 0) {
+        continue;
+      }
+
+      final long wouldDeny = shadowPolicy.getWouldDeny(version);
+      final long wouldAllow = shadowPolicy.getWouldAllow(version);
+      totalEvaluated += evaluated;
+      totalDeny += wouldDeny;
+      totalAllow += wouldAllow;
+
+      final boolean translated = version != nativeVersion;
+      if (translated) {
+        totalOntoTranslation += wouldAllow;
+        totalOffTranslation += wouldDeny;
+      }
+
+      if (wouldDeny != 0 || wouldAllow != 0) {
+        sender.sendMessage(ChatColor.YELLOW + version.getName() + ": " + ChatColor.WHITE
+            + evaluated + " logins, " + wouldDeny + " would be denied, "
+            + wouldAllow + " would be allowed"
+            + (translated ? translationLoad(wouldAllow, wouldDeny) : ", native"));
+      }
+    }
+
+    sender.sendMessage(ChatColor.YELLOW + "total: " + ChatColor.WHITE + totalEvaluated
+        + " logins, " + totalDeny + " would be denied, " + totalAllow + " would be allowed"
+        + translationLoad(totalOntoTranslation, totalOffTranslation));
+  }
+
+  @Nonnull
+  private static String translationLoad(long ontoTranslation, long offTranslation) {
+    return ", translated logins " + ChatColor.GREEN + "+" + ontoTranslation
+        + ChatColor.WHITE + "/" + ChatColor.RED + "-" + offTranslation;
+  }
+
+  private void metrics(@Nonnull CommandSender sender) {
+    final AdmissionPacer pacer = parentInstance.getAdmissionPacer();
+    if (pacer == null) {
+      sender.sendMessage(ChatColor.RED + "admission.enabled is not set in config.yml.");
+      return;
+    }
+
+    sender.sendMessage(ChatColor.GOLD + "Admission pacing");
+    sender.sendMessage(ChatColor.YELLOW + "admitted: " + ChatColor.WHITE + pacer.getAdmitted()
+        + " (priority versions: " + pacer.getAdmittedPriority() + ")");
+    sender.sendMessage(ChatColor.YELLOW + "deferred: " + ChatColor.WHITE + pacer.getDeferred());
+  }
+
+  /*
+   * The file is read asynchronously, since the longer periods read
+   * hundreds of rows. The result is sent back on the main thread.
+   */
+  private void history(@Nonnull CommandSender sender, @Nonnull String versionName) {
+    final VersionHistory versionHistory = parentInstance.getVersionHistory();
+    final ProtocolVersion version = EnchantedBlockVersion.getProtocol(versionName);
+
+    if (versionHistory == null) {
+      sender.sendMessage(ChatColor.RED + "history.enabled is not set in config.yml.");
+      return;
+    }
+    if (version == null) {
+      sender.sendMessage(ChatColor.RED + "could not understand '" + versionName + "'.");
+      return;
+    }
+
+    final int online = parentInstance.getOnlineVersionCounter().get(version);
+    Bukkit.getScheduler().runTaskAsynchronously(parentInstance, () -> {
+      final long now = System.currentTimeMillis() / 60_000L;
+      final List<String> lines = new ArrayList<>();
+      lines.add(ChatColor.GOLD + "History of " + version.getName()
+          + " (online now: " + online + ")");
+
+      try {
+        addSummary(lines, "last hour", versionHistory
+            .summarize(VersionHistory.Tier.MINUTE, version, 60, now));
+        addSummary(lines, "last day", versionHistory
+            .summarize(VersionHistory.Tier.HOUR, version, 24, now));
+        addSummary(lines, "last week", versionHistory
+            .summarize(VersionHistory.Tier.HOUR, version, 7 * 24, now));
+        addSummary(lines, "last 30 days", versionHistory
+            .summarize(VersionHistory.Tier.DAY, version, 30, now));
+        addSummary(lines, "last year", versionHistory
+            .summarize(VersionHistory.Tier.DAY, version, 365, now));
+
+      } catch (IOException e) {
+        lines.add(ChatColor.RED + "could not read the history: " + e.getMessage());
+      }
+
+      Bukkit.getScheduler().runTask(parentInstance, () -> {
+        for (String line : lines) {
+          sender.sendMessage(line);
+        }
+      });
+    });
+  }
+
+  private static void addSummary(@Nonnull List<String> lines, @Nonnull String period,
+      VersionHistory.Summary summary) {
+
+    if (summary == null || summary.rows == 0) {
+      lines.add(ChatColor.GRAY + period + ": no data");
+      return;
+    }
+
+    lines.add(ChatColor.YELLOW + period + ": " + ChatColor.WHITE
+        + String.format(Locale.ROOT, "%.1f online on average, %.2f%% of all players",
+            summary.average, summary.share * 100));
+  }
+}
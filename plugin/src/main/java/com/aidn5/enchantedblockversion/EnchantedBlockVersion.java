@@ -0,0 +1,570 @@
+
+package com.aidn5.enchantedblockversion;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Objects;
+import java.util.logging.Level;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.ServicePriority;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import protocolsupport.api.ProtocolSupportAPI;
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Plugin's main instance contains all the instances and objects of the plugin.
+ * It also provides static method {@link #getInstance()} to access the plugin
+ * directly.
+ *
+ * <p>The plugin has also api ({@link #isWhitelisted(ProtocolVersion)},
+ * {@link #isBlacklisted(ProtocolVersion)}). Other plugins querying often
+ * should use the registered {@link PolicyService} instead. Use
+ * {@link #getProtocol(String)} to convert from minecraft version to protocol
+ * version. The configurations are parsed and processed by a stand-alone class {@link #getConfigInstance()}.
+ *
+ * @author aidn5
+ *
+ * @see #getInstance()
+ * @see PolicyService
+ * @see #isWhitelisted(ProtocolVersion)
+ * @see #isBlacklisted(ProtocolVersion)
+ * @see #getProtocol(String)
+ * @see #getConfigInstance()
+ */
+public class EnchantedBlockVersion extends JavaPlugin {
+  /**
+   * Maximum amount of players to remember their bypass permissions
+   * for the {@link PolicyQueryServer}.
+   */
+  private static final int BYPASS_CACHE_SIZE = 4096;
+  /**
+   * Interval in ticks to check the shared policy file for a new generation.
+   */
+  private static final long SHARED_POLICY_POLL = 20; // One second
+  /**
+   * Interval in ticks to sample the online versions into the history.
+   */
+  private static final long HISTORY_SAMPLE = 20 * 60; // One minute
+
+  @Nullable
+  private static volatile EnchantedBlockVersion instance = null;
+
+  @Nullable
+  private volatile Config config = null;
+  @Nullable
+  private VersionReminder versionReminder;
+  @Nullable
+  private volatile OnLoginListener onLoginListener;
+  @Nonnull
+  private final BypassCache bypassCache = new BypassCache(BYPASS_CACHE_SIZE);
+  @Nullable
+  private PolicyQueryServer policyQueryServer;
+  @Nullable
+  private volatile SharedPolicyFile sharedPolicyFile;
+  @Nonnull
+  private final OnlineVersionCounter onlineVersionCounter = new OnlineVersionCounter();
+  @Nullable
+  private volatile VersionHistory versionHistory;
+  @Nullable
+  private volatile AdmissionPacer admissionPacer;
+  @Nullable
+  private volatile ShadowPolicy shadowPolicy;
+  @Nullable
+  private PolicyService policyService;
+  private long startTime;
+
+  /**
+   * Constructor used by the server.
+   */
+  public EnchantedBlockVersion() {
+    super();
+  }
+
+  /**
+   * Constructor to load the plugin outside of a server, e.g. in tests.
+   *
+   * @param loader
+   *          the loader of the plugin.
+   * @param description
+   *          the description of the plugin (<code>plugin.yml</code>).
+   * @param dataFolder
+   *          the folder of the plugin's files.
+   * @param file
+   *          the file of the plugin.
+   */
+  protected EnchantedBlockVersion(@Nonnull JavaPluginLoader loader,
+      @Nonnull PluginDescriptionFile description, @Nonnull File dataFolder, @Nonnull File file) {
+
+    super(loader, description, dataFolder, file);
+  }
+
+  /**
+   * Get the instance of the plugin.
+   *
+   * @return the instance of the plugin,
+   *         or <code>null</code> if the plugin is not enabled.
+   */
+  @Nullable
+  public static EnchantedBlockVersion getInstance() {
+    return instance;
+  }
+
+  @Override
+  public void onEnable() {
+    instance = this;
+    startTime = System.nanoTime();
+
+    saveDefaultConfig();
+    reloadConfig();
+
+    config = new Config(this);
+    config.reload();
+
+    // the shared policy is applied before any login is decided
+    if (config.getSharedPolicyFile() != null) {
+      File file = new File(config.getSharedPolicyFile());
+      if (!file.isAbsolute()) {
+        file = new File(getDataFolder(), config.getSharedPolicyFile());
+      }
+
+      try {
+        sharedPolicyFile = new SharedPolicyFile(file);
+        pollSharedPolicy();
+        getServer().getScheduler().runTaskTimerAsynchronously(this,
+            this::pollSharedPolicy, SHARED_POLICY_POLL, SHARED_POLICY_POLL);
+
+      } catch (IOException e) {
+        getLogger().log(Level.WARNING, "could not open the shared policy file", e);
+      }
+    }
+
+    onLoginListener = new OnLoginListener(this);
+    versionReminder = new VersionReminder(this);
+    admissionPacer = config.isAdmissionEnabled() ? new AdmissionPacer(config, startTime) : null;
+
+    for (Player player : getServer().getOnlinePlayers()) {
+      onlineVersionCounter.join(player.getUniqueId(),
+          ProtocolSupportAPI.getProtocolVersion(player));
+    }
+
+    getServer().getPluginManager().registerEvents(onLoginListener, this);
+    getCommand("ebv").setExecutor(new EbvCommand(this));
+
+    policyService = new PluginPolicyService(config);
+    getServer().getServicesManager()
+        .register(PolicyService.class, policyService, this, ServicePriority.Normal);
+
+    if (config.isHistoryEnabled()) {
+      try {
+        versionHistory = new VersionHistory(new File(getDataFolder(), "history.dat"),
+            System.currentTimeMillis() / 60_000L);
+        getServer().getScheduler().runTaskTimerAsynchronously(this,
+            this::sampleHistory, HISTORY_SAMPLE, HISTORY_SAMPLE);
+
+      } catch (IOException e) {
+        getLogger().log(Level.WARNING, "could not open the version history", e);
+      }
+    }
+
+    applyQueryService();
+  }
+
+  /*
+   * The reminder is shut down first,
+   * so it stops even if anything after fails.
+   */
+  @Override
+  public void onDisable() {
+    if (versionReminder != null) {
+      versionReminder.shutdown();
+      versionReminder = null;
+    }
+
+    getServer().getServicesManager().unregisterAll(this);
+    policyService = null;
+
+    if (versionHistory != null) {
+      try {
+        versionHistory.close();
+      } catch (IOException ignored) {
+        // nothing to do
+      }
+      versionHistory = null;
+    }
+
+    if (sharedPolicyFile != null) {
+      try {
+        sharedPolicyFile.close();
+      } catch (IOException ignored) {
+        // nothing to do
+      }
+      sharedPolicyFile = null;
+    }
+
+    if (policyQueryServer != null) {
+      policyQueryServer.shutdown();
+      policyQueryServer = null;
+    }
+
+    onlineVersionCounter.reset();
+    config = null;
+    onLoginListener = null;
+    admissionPacer = null;
+    shadowPolicy = null;
+
+    // a disabled plugin is not retained till it is enabled again
+    if (instance == this) {
+      instance = null;
+    }
+  }
+
+  /**
+   * Reload the configuration and apply it on the reminder and the query
+   * service. The shared policy, if it is used, keeps overriding the whitelist
+   * and blacklist of the configuration.
+   *
+   * @return <code>true</code> if the shared policy is still in effect instead
+   *         of the whitelist and blacklist of the configuration.
+   *
+   * @throws RuntimeException
+   *           if the configuration is not valid.
+   *
+   * @see Config#reload()
+   */
+  boolean reloadSettings() throws RuntimeException {
+    final SharedPolicyFile sharedPolicyFile = this.sharedPolicyFile;
+    final CompiledPolicy sharedPolicy = sharedPolicyFile != null
+        ? sharedPolicyFile.readCurrent() : null;
+
+    // the shared policy replaces the one of config.yml in the same swap
+    config.reload(sharedPolicy);
+
+    versionReminder.shutdown();
+    versionReminder = new VersionReminder(this);
+    admissionPacer = config.isAdmissionEnabled() ? new AdmissionPacer(config, startTime) : null;
+    applyQueryService();
+    return sharedPolicy != null;
+  }
+
+  /**
+   * Reload the local <code>config.yml</code> with {@link #reloadSettings()} and
+   * publish its policy into the shared policy file for all the servers using
+   * the same file.
+   *
+   * @return the generation of the published policy.
+   *
+   * @throws IllegalStateException
+   *           if the shared policy file is not used.
+   * @throws IOException
+   *           if the policy could not be written.
+   * @throws RuntimeException
+   *           if the configuration is not valid.
+   */
+  long publishPolicy() throws IllegalStateException, IOException, RuntimeException {
+    final SharedPolicyFile sharedPolicyFile = this.sharedPolicyFile;
+    if (sharedPolicyFile == null) {
+      throw new IllegalStateException("sharedPolicy.file is not set or could not be opened.");
+    }
+
+    reloadSettings();
+
+    final CompiledPolicy configuredPolicy = config.getConfiguredPolicy();
+    final long generation = sharedPolicyFile.publish(configuredPolicy);
+    config.applyCompiledPolicy(configuredPolicy);
+    return generation;
+  }
+
+  /*
+   * The server is only restarted if its address has changed,
+   * so a reload does not drop the connections of the proxies.
+   */
+  private void applyQueryService() {
+    final InetSocketAddress address = config.isQueryServiceEnabled()
+        ? new InetSocketAddress(config.getQueryServiceAddress(), config.getQueryServicePort())
+        : null;
+
+    if (policyQueryServer != null) {
+      if (policyQueryServer.getAddress().equals(address)) {
+        return;
+      }
+      policyQueryServer.shutdown();
+      policyQueryServer = null;
+    }
+
+    if (address != null) {
+      try {
+        policyQueryServer = new PolicyQueryServer(this::getCurrentPolicy, bypassCache,
+            getLogger(), address);
+      } catch (IOException | IllegalArgumentException e) {
+        getLogger().log(Level.WARNING, "could not start the query service", e);
+      }
+    }
+  }
+
+  /*
+   * null while the plugin is disabled.
+   */
+  @Nullable
+  private CompiledPolicy getCurrentPolicy() {
+    final Config config = this.config;
+    return config != null ? config.getCompiledPolicy() : null;
+  }
+
+  /*
+   * Runs asynchronously. Reading the generation is the only cost
+   * as long as no new policy is published.
+   */
+  private void pollSharedPolicy() {
+    final SharedPolicyFile sharedPolicyFile = this.sharedPolicyFile;
+    final Config config = this.config;
+    if (sharedPolicyFile == null || config == null) {
+      return;
+    }
+
+    CompiledPolicy sharedPolicy = sharedPolicyFile.pollChanged();
+    if (sharedPolicy != null) {
+      config.applyCompiledPolicy(sharedPolicy);
+    }
+  }
+
+  private void sampleHistory() {
+    final VersionHistory versionHistory = this.versionHistory;
+    if (versionHistory == null) {
+      return;
+    }
+
+    try {
+      versionHistory.sample(System.currentTimeMillis() / 60_000L, onlineVersionCounter);
+    } catch (IOException e) {
+      getLogger().log(Level.WARNING, "could not sample the version history", e);
+    }
+  }
+
+  /**
+   * Get the configuration instance of the plugin.
+   *
+   * @return the configuration instance of the plugin,
+   *         or <code>null</code> if the plugin is disabled.
+   *
+   * @see Config
+   */
+  @Nullable
+  public Config getConfigInstance() {
+    return config;
+  }
+
+  /**
+   * Get the policy service registered by the plugin.
+   *
+   * @return the policy service of the plugin,
+   *         or <code>null</code> if the plugin is disabled.
+   *
+   * @see PolicyService
+   */
+  @Nullable
+  public PolicyService getPolicyService() {
+    return policyService;
+  }
+
+  /**
+   * Get the reminder instance of the plugin.
+   *
+   * @return the reminder instance of the plugin,
+   *         or <code>null</code> if the plugin is disabled.
+   */
+  @Nullable
+  public VersionReminder getVersionReminder() {
+    return versionReminder;
+  }
+
+  /**
+   * Load a candidate policy from a file of the same format as
+   * <code>config.yml</code> and evaluate it on every login without enforcing
+   * it. The previous candidate and its counters are replaced.
+   *
+   * @param fileName
+   *          the file to load. A relative path is relative to the plugin's
+   *          folder.
+   * @return the loaded shadow policy.
+   *
+   * @throws IllegalArgumentException
+   *           if the file does not exist.
+   * @throws RuntimeException
+   *           if the file is not valid.
+   */
+  @Nonnull
+  ShadowPolicy loadShadowPolicy(@Nonnull String fileName)
+      throws IllegalArgumentException, RuntimeException {
+
+    File file = new File(fileName);
+    if (!file.isAbsolute()) {
+      file = new File(getDataFolder(), fileName);
+    }
+    if (!file.isFile()) {
+      throw new IllegalArgumentException("'" + file + "' does not exist.");
+    }
+
+    final CompiledPolicy candidate = Config
+        .compilePolicy(YamlConfiguration.loadConfiguration(file));
+    final ShadowPolicy loaded = new ShadowPolicy(candidate, file.getName());
+    shadowPolicy = loaded;
+    return loaded;
+  }
+
+  /**
+   * Stop evaluating the candidate policy.
+   */
+  void clearShadowPolicy() {
+    shadowPolicy = null;
+  }
+
+  /**
+   * Get the candidate policy evaluated next to the active one.
+   *
+   * @return the shadow policy,
+   *         or <code>null</code> if no candidate is loaded.
+   */
+  @Nullable
+  ShadowPolicy getShadowPolicy() {
+    return shadowPolicy;
+  }
+
+  /**
+   * Get the listener deciding the logins.
+   *
+   * @return the login listener of the plugin,
+   *         or <code>null</code> if the plugin is disabled.
+   */
+  @Nullable
+  OnLoginListener getOnLoginListener() {
+    return onLoginListener;
+  }
+
+  /**
+   * Get the pacer of the logins after a restart.
+   *
+   * @return the pacer of the plugin,
+   *         or <code>null</code> if it is disabled.
+   */
+  @Nullable
+  AdmissionPacer getAdmissionPacer() {
+    return admissionPacer;
+  }
+
+  /**
+   * Get the counter of the online players per version.
+   *
+   * @return the online counter of the plugin.
+   */
+  @Nonnull
+  OnlineVersionCounter getOnlineVersionCounter() {
+    return onlineVersionCounter;
+  }
+
+  /**
+   * Get the recorded history of the online versions.
+   *
+   * @return the history of the plugin,
+   *         or <code>null</code> if it is disabled.
+   */
+  @Nullable
+  VersionHistory getVersionHistory() {
+    return versionHistory;
+  }
+
+  /**
+   * Get the remembered bypass permissions of the players who logged in recently.
+   *
+   * @return the bypass cache of the plugin.
+   */
+  @Nonnull
+  BypassCache getBypassCache() {
+    return bypassCache;
+  }
+
+  /**
+   * Check if a protocol is whitelisted in the configurations.
+   *
+   * @param protocolVersion
+   *          the protocol to check.
+   * @return <code>true</code> if it is whitelisted.
+   *
+   * @throws NullPointerException
+   *           if <code>protocolVersion</code> is <code>null</code>.
+   *
+   * @see #isBlacklisted(ProtocolVersion)
+   * @see #getProtocol(String)
+   */
+  public boolean isWhitelisted(@Nonnull ProtocolVersion protocolVersion)
+      throws NullPointerException {
+
+    Objects.requireNonNull(protocolVersion, "protocolVersion must not be null");
+    return getConfigInstance().getCompiledPolicy().isWhitelisted(protocolVersion);
+  }
+
+  /**
+   * Check if a protocol is blacklisted in the configurations.
+   *
+   * @param protocolVersion
+   *          the protocol to check.
+   *
+   * @return <code>true</code> if it is blacklisted.
+   *
+   * @throws NullPointerException
+   *           if <code>protocolVersion</code> is <code>null</code>.
+   *
+   * @see #isWhitelisted(ProtocolVersion)
+   * @see #getProtocol(String)
+   */
+  public boolean isBlacklisted(@Nonnull ProtocolVersion protocolVersion)
+      throws NullPointerException {
+
+    Objects.requireNonNull(protocolVersion, "protocolVersion must not be null");
+    return getConfigInstance().getCompiledPolicy().isBlacklisted(protocolVersion);
+  }
+
+  /**
+   * Get the recommended version the player should use on the server for the
+   * utmost experience.
+   *
+   * @return
+   *         the recommend minecraft version the
+   *         player should use on the server,
+   *         or <code>null</code> if it is disabled.
+   *
+   * @see Config#getRecommendedVersion()
+   * @see Config#getMessage(MessageKind, String, ProtocolVersion)
+   * @see #getConfigInstance()
+   */
+  @Nullable
+  public ProtocolVersion getRecommendedVersion() {
+    return getConfigInstance().getRecommendedVersion();
+  }
+
+  /**
+   * Get the protocol for the given <code>version</code>.
+   * This method support both version types, minecraft version like "1.12.2" and
+   * ProtocolSupport version from {@link ProtocolVersion} like "MINECRAFT_1_12_2".
+   * <code>null</code> is returned if no associated version is found.
+   * {@link ProtocolVersion#UNKNOWN} can be used if <code>null</code> is returned.
+   *
+   * @param version
+   *          the version of the protocol to get.
+   * @return the protocol in {@link ProtocolVersion},
+   *         or <code>null</code> if not found
+   *         or <code>version</code> is <code>null</code>.
+   */
+  @Nullable
+  public static ProtocolVersion getProtocol(@Nullable String version) {
+    return ProtocolVersions.parse(version);
+  }
+}
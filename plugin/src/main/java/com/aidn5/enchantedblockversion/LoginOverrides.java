@@ -0,0 +1,64 @@
+package com.aidn5.enchantedblockversion;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Class remembers the players whose denied verdict was overridden on the login
+ * by cancelling {@link PlayerVersionDecisionEvent}, so the join lets them in
+ * without asking again.
+ *
+ * <p>The cache is bounded, like {@link BypassCache}. The oldest entries are
+ * dropped, e.g. of clients who never finished joining.
+ *
+ * @author aidn5
+ */
+class LoginOverrides {
+  @Nonnull
+  private final Map<String, Boolean> entries;
+
+  /**
+   * Constructor.
+   *
+   * @param maxEntries
+   *          the maximum amount of players to remember.
+   */
+  LoginOverrides(final int maxEntries) {
+    this.entries = new LinkedHashMap<String, Boolean>(16, 0.75f, false) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Remember that the login of a player has been overridden.
+   *
+   * @param playerName
+   *          the name of the player.
+   */
+  void add(@Nonnull String playerName) {
+    synchronized (entries) {
+      entries.put(playerName.toLowerCase(Locale.ROOT), Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Forget a player on joining.
+   *
+   * @param playerName
+   *          the name of the player.
+   * @return <code>true</code> if the login of the player has been overridden.
+   */
+  boolean remove(@Nonnull String playerName) {
+    synchronized (entries) {
+      return entries.remove(playerName.toLowerCase(Locale.ROOT)) != null;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.aidn5.enchantedblockversion;
+
+/**
+ * The kinds of the messages sent to the players.
+ *
+ * @author aidn5
+ *
+ * @see MessageRenderer
+ */
+public enum MessageKind {
+  /**
+   * kick message if the version is not whitelisted.
+   */
+  WHITELIST("whitelistMessage"),
+  /**
+   * kick message if the version is blacklisted.
+   */
+  BLACKLIST("blacklistMessage"),
+  /**
+   * chat message reminding players who joined using their bypass.
+   */
+  BYPASS("bypassMessage"),
+  /**
+   * chat message recommending the recommended version.
+   */
+  RECOMMEND("recommended.message");
+
+  private final String key;
+
+  MessageKind(String key) {
+    this.key = key;
+  }
+
+  /**
+   * Get the path of the message in the configuration. The same path is used at
+   * the top level and in a locale section.
+   *
+   * @return the configuration path of the message.
+   */
+  public String getKey() {
+    return key;
+  }
+}
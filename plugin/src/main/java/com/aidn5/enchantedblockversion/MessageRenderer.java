@@ -0,0 +1,197 @@
+package com.aidn5.enchantedblockversion;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Class renders the per-locale message templates and caches the results by
+ * (locale, {@link ProtocolVersion}, {@link MessageKind}). The cache is filled
+ * lazily. A new instance is created on every reload, which drops the cache.
+ *
+ * <p>The templates support the placeholders <code>{version}</code> (the
+ * version of the player), <code>{recommended}</code> (the recommended version)
+ * and <code>{range}</code> (the whitelisted range). The colors must already be
+ * translated. Missing messages of a locale fall back to {@link #DEFAULT_LOCALE}.
+ *
+ * @author aidn5
+ *
+ * @see Config#getMessage(MessageKind, String, ProtocolVersion)
+ */
+public final class MessageRenderer {
+  /**
+   * The locale of the messages used when the locale of the player is unknown.
+   */
+  public static final String DEFAULT_LOCALE = "default";
+
+  /**
+   * Maximum amount of client locales to remember their resolved locale.
+   * Clients can send any locale.
+   */
+  private static final int MAX_ALIASES = 256;
+  private static final int VERSIONS = ProtocolVersion.values().length;
+  private static final int KINDS = MessageKind.values().length;
+
+  @Nonnull
+  private final Map<String, String[]> templates = new HashMap<>();
+  @Nonnull
+  private final Map<String, AtomicReferenceArray<String>> caches = new HashMap<>();
+  @Nonnull
+  private final Map<String, String> aliases = new ConcurrentHashMap<>();
+  @Nonnull
+  private final String recommended;
+  @Nonnull
+  private final String range;
+
+  /**
+   * Constructor.
+   *
+   * @param templates
+   *          the templates by locale and kind. {@link #DEFAULT_LOCALE} must
+   *          contain all the kinds.
+   * @param recommended
+   *          the value of <code>{recommended}</code>.
+   * @param range
+   *          the value of <code>{range}</code>.
+   *
+   * @throws IllegalArgumentException
+   *           if the default locale misses a kind.
+   */
+  public MessageRenderer(@Nonnull Map<String, Map<MessageKind, String>> templates,
+      @Nonnull String recommended, @Nonnull String range) throws IllegalArgumentException {
+
+    this.recommended = Objects.requireNonNull(recommended, "recommended must not be null");
+    this.range = Objects.requireNonNull(range, "range must not be null");
+
+    final Map<MessageKind, String> defaults = templates.get(DEFAULT_LOCALE);
+    for (MessageKind kind : MessageKind.values()) {
+      if (defaults == null || defaults.get(kind) == null) {
+        throw new IllegalArgumentException("the default " + kind.getKey() + " is missing.");
+      }
+    }
+
+    for (Map.Entry<String, Map<MessageKind, String>> entry : templates.entrySet()) {
+      final String locale = entry.getKey().toLowerCase(Locale.ROOT);
+      final String[] localeTemplates = new String[KINDS];
+
+      for (MessageKind kind : MessageKind.values()) {
+        String template = entry.getValue().get(kind);
+        localeTemplates[kind.ordinal()] = template != null ? template : defaults.get(kind);
+      }
+
+      this.templates.put(locale, localeTemplates);
+      this.caches.put(locale, new AtomicReferenceArray<>(KINDS * VERSIONS));
+    }
+  }
+
+  /**
+   * Describe the whitelisted versions for <code>{range}</code>, e.g.
+   * "1.8-1.14.4, 1.7.5". The allowed versions outside of the range are listed
+   * after it, so the description is not empty if the range is disabled.
+   *
+   * @param start
+   *          the first version of the range,
+   *          or <code>null</code> if the range is disabled.
+   * @param end
+   *          the last version of the range,
+   *          or <code>null</code> if the range is disabled.
+   * @param allowVersions
+   *          the versions allowed besides the range.
+   * @return the description of the whitelisted versions.
+   */
+  @Nonnull
+  public static String describeRange(@Nullable ProtocolVersion start,
+      @Nullable ProtocolVersion end, @Nonnull Collection<ProtocolVersion> allowVersions) {
+
+    final StringJoiner range = new StringJoiner(", ");
+    final Collection<ProtocolVersion> between;
+    if (start != null && end != null) {
+      range.add(start.getName() + "-" + end.getName());
+      between = Arrays.asList(ProtocolVersion.getAllBetween(start, end));
+    } else {
+      between = null;
+    }
+
+    for (ProtocolVersion version : allowVersions) {
+      if (between == null || !between.contains(version)) {
+        range.add(version.getName());
+      }
+    }
+    return range.toString();
+  }
+
+  /**
+   * Render a message.
+   *
+   * @param kind
+   *          the kind of the message.
+   * @param locale
+   *          the locale of the player (e.g. "de_de"),
+   *          or <code>null</code> if it is unknown.
+   * @param version
+   *          the version of the player.
+   * @return the rendered message.
+   */
+  @Nonnull
+  public String render(@Nonnull MessageKind kind, @Nullable String locale,
+      @Nonnull ProtocolVersion version) {
+
+    final String resolvedLocale = resolveLocale(locale);
+    final AtomicReferenceArray<String> cache = caches.get(resolvedLocale);
+    final int index = kind.ordinal() * VERSIONS + version.ordinal();
+
+    String message = cache.get(index);
+    if (message == null) {
+      message = templates.get(resolvedLocale)[kind.ordinal()]
+          .replace("{version}", version.getName())
+          .replace("{recommended}", recommended)
+          .replace("{range}", range);
+      cache.lazySet(index, message);
+    }
+    return message;
+  }
+
+  /*
+   * An exact locale (e.g. "de_de") is preferred over its language ("de").
+   */
+  @Nonnull
+  private String resolveLocale(@Nullable String locale) {
+    if (locale == null) {
+      return DEFAULT_LOCALE;
+    }
+    if (templates.containsKey(locale)) {
+      return locale;
+    }
+
+    String resolved = aliases.get(locale);
+    if (resolved != null) {
+      return resolved;
+    }
+
+    final String lowerCase = locale.toLowerCase(Locale.ROOT);
+    final int separator = lowerCase.indexOf('_');
+    if (templates.containsKey(lowerCase)) {
+      resolved = lowerCase;
+    } else if (separator > 0 && templates.containsKey(lowerCase.substring(0, separator))) {
+      resolved = lowerCase.substring(0, separator);
+    } else {
+      resolved = DEFAULT_LOCALE;
+    }
+
+    if (aliases.size() < MAX_ALIASES) {
+      aliases.put(locale, resolved);
+    }
+    return resolved;
+  }
+}
@@ -0,0 +1,335 @@
+
+package com.aidn5.enchantedblockversion;
+
+import java.util.Objects;
+import java.util.UUID;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.milkbowl.vault.permission.Permission;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.RegisteredServiceProvider;
+
+import protocolsupport.api.ProtocolSupportAPI;
+import protocolsupport.api.ProtocolVersion;
+import protocolsupport.api.events.PlayerLoginStartEvent;
+
+/**
+ * Class listens join events used to check the protocol version and decide
+ * whether to allow or deny joining the server.
+ *
+ * @author aidn5
+ *
+ * @see VersionReminder
+ */
+class OnLoginListener implements Listener {
+  /**
+   * Delay in ticks for the first message (direct after logging in)
+   * to not let it be drown by the other plugins' messages.
+   */
+  private static final int MESSAGE_DELAY = 20; // One second delay
+
+  /**
+   * Looks up the permissions of an online player.
+   */
+  private static final PermissionLookup<Player> PLAYER_PERMISSIONS = Player::hasPermission;
+
+  /**
+   * Maximum amount of overridden logins to remember till the player joins.
+   */
+  private static final int MAX_OVERRIDES = 1024;
+
+  @Nonnull
+  private final EnchantedBlockVersion parentInstance;
+  @Nullable
+  private final PermissionLookup<OfflinePlayer> vaultPermissions;
+  @Nonnull
+  private final LoginOverrides loginOverrides = new LoginOverrides(MAX_OVERRIDES);
+
+  /*
+   * Config is not included in the constructor, since it is not final.
+   * Parent is used instead to avoid further complexity.
+   */
+  OnLoginListener(@Nonnull EnchantedBlockVersion parentInstance)
+      throws NullPointerException {
+
+    this.parentInstance = Objects
+        .requireNonNull(parentInstance, "parentInstance must not be null");
+
+    PermissionLookup<OfflinePlayer> vaultPermissions;
+    try {
+      RegisteredServiceProvider<Permission> rsp = Bukkit.getServer().getServicesManager()
+          .getRegistration(Permission.class);
+      final Permission permission = Objects.requireNonNull(rsp.getProvider());
+      vaultPermissions = (offlinePlayer, node) -> permission.playerHas(null, offlinePlayer, node);
+
+    } catch (Exception e) {
+      parentInstance.getLogger().warning("Vault is not installed. Some features will be disabled");
+      vaultPermissions = null;
+    }
+    this.vaultPermissions = vaultPermissions;
+  }
+
+  /*
+   * Block the connection if the version is not allowed.
+   * If this method is disabled (due to lack of permission),
+   * onPlayerJoin will be used to kick the player. This method exists
+   * to avoid risks by allowing players to join the server and run code,
+   * even if it is for a split of a second.
+   * <p>Since Player instance is not access-able till the onPlayerLoginEvent,
+   * Vault is used to take advantage of some permission managers, which support
+   * offline players. We can only use offline players here, since there is a
+   * Profile (offline-mode and only contains the username).
+   * <p>The permissions are only looked up if the version is not allowed,
+   * so the common login does not touch the permission backend at all.
+   * The shadow policy, if loaded, reuses the verdict of the version.
+   * <p>The decision event is only created if anyone listens.
+   */
+  @SuppressWarnings("deprecation")
+  @EventHandler
+  public void onPlayerLogin(final PlayerLoginStartEvent e) {
+    final ProtocolVersion usedVersion = ProtocolSupportAPI.getProtocolVersion(e.getAddress());
+
+    // Connection#getPlayer() is always null
+    // Connection#getProfile() is offlineMode and contains only the username.
+    final String denyMessage = decideLogin(usedVersion, e.getConnection().getProfile().getName(),
+        e.getConnection().getPlayer(), e.isAsynchronous());
+
+    if (denyMessage != null) {
+      e.denyLogin(denyMessage);
+    }
+  }
+
+  /**
+   * Decide the login of a player. Separated from the event
+   * to measure the decision without a connection.
+   *
+   * @param usedVersion
+   *          the protocol version the player is using.
+   * @param playerName
+   *          the name of the player.
+   * @param player
+   *          the player, if it is already known.
+   * @param async
+   *          whether the login is decided outside of the main thread.
+   * @return the message to deny the login with,
+   *         or <code>null</code> to let the player log in.
+   */
+  @SuppressWarnings("deprecation")
+  @Nullable
+  String decideLogin(@Nonnull ProtocolVersion usedVersion, @Nonnull String playerName,
+      @Nullable Player player, boolean async) {
+
+    final Config config = parentInstance.getConfigInstance();
+    final CompiledPolicy policy = config.getCompiledPolicy();
+    final Verdict versionVerdict = policy.getVerdict(usedVersion);
+
+    final ShadowPolicy shadowPolicy = parentInstance.getShadowPolicy();
+    if (shadowPolicy != null) {
+      shadowPolicy.record(usedVersion, versionVerdict);
+    }
+
+    if (config.isProxyTrusted()) {
+      // the proxy has already denied the connection if it was not allowed
+      if (PlayerVersionDecisionEvent.hasListeners()) {
+        callDecision(playerName, usedVersion, policy.getVerdict(usedVersion, true, false), async);
+      }
+      return null;
+    }
+    if (!versionVerdict.isDenied()) {
+      if (PlayerVersionDecisionEvent.hasListeners()) {
+        callDecision(playerName, usedVersion, versionVerdict, async);
+      }
+      return null;
+    }
+
+    final Verdict verdict;
+    if (player != null) {
+      verdict = policy.getVerdict(usedVersion, player, PLAYER_PERMISSIONS);
+
+    } else if (this.vaultPermissions != null) {
+      final OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(playerName);
+      verdict = policy.getVerdict(usedVersion, offlinePlayer, vaultPermissions);
+
+    } else {
+      // disable this feature if permissions not available at the moment
+      // and rely on onPlayerJoin even to do the job.
+      return null;
+    }
+
+    rememberBypass(playerName, policy, usedVersion, verdict);
+
+    if (PlayerVersionDecisionEvent.hasListeners()
+        && !callDecision(playerName, usedVersion, verdict, async)) {
+      // remembered, so the join does not ask again
+      if (verdict.isDenied()) {
+        loginOverrides.add(playerName);
+      }
+      return null;
+    }
+
+    if (verdict == Verdict.BLACKLISTED) {
+      return config.getMessage(MessageKind.BLACKLIST, null, usedVersion);
+
+    } else if (verdict == Verdict.NOT_WHITELISTED) {
+      return config.getMessage(MessageKind.WHITELIST, null, usedVersion);
+    }
+    return null;
+  }
+
+  /*
+   * Pace the logins after the policy has been decided,
+   * so denied clients never take a place of an allowed one.
+   * Without Vault, the denied versions are let through to be kicked on join,
+   * hence the verdict of the version is checked as well.
+   */
+  @EventHandler(priority = EventPriority.HIGH)
+  public void onPlayerLoginPace(final PlayerLoginStartEvent e) {
+    final AdmissionPacer pacer = parentInstance.getAdmissionPacer();
+    if (pacer == null || e.isLoginDenied()) {
+      return;
+    }
+
+    final Config config = parentInstance.getConfigInstance();
+    final ProtocolVersion usedVersion = ProtocolSupportAPI.getProtocolVersion(e.getAddress());
+    if (!config.isProxyTrusted() && config.getCompiledPolicy().getVerdict(usedVersion).isDenied()) {
+      return;
+    }
+
+    final int wait = pacer.admit(usedVersion, System.nanoTime());
+    if (wait > 0) {
+      e.denyLogin(pacer.getDeferMessage(wait));
+    }
+  }
+
+  /*
+   * lowest priority is used, since there is no way to cancel the even.
+   * Removing the chat join message is the least what we can do.
+   * If the proxy is trusted, whoever reached the server has been allowed
+   * by the proxy, which is handled as a bypass to still remind them.
+   */
+  @EventHandler(priority = EventPriority.LOWEST)
+  public void onPlayerJoin(final PlayerJoinEvent e) {
+    final Config config = parentInstance.getConfigInstance();
+    final CompiledPolicy policy = config.getCompiledPolicy();
+    final Player player = e.getPlayer();
+    final ProtocolVersion recommendedVersion = config.getRecommendedVersion();
+    final ProtocolVersion usedVersion = ProtocolSupportAPI.getProtocolVersion(player);
+    parentInstance.getOnlineVersionCounter().join(player.getUniqueId(), usedVersion);
+
+    final Verdict verdict = config.isProxyTrusted()
+        ? policy.getVerdict(usedVersion, true, false)
+        : policy.getVerdict(usedVersion, player, PLAYER_PERMISSIONS);
+
+    // a bypass granted by trusting the proxy is not a permission of the player
+    if (verdict != Verdict.ALLOWED && !config.isProxyTrusted()) {
+      rememberBypass(player.getName(), policy, usedVersion, verdict);
+    }
+
+    // without Vault, the login leaves the denied versions to the join
+    final boolean overridden = loginOverrides.remove(player.getName());
+    final boolean decidedOnLogin = config.isProxyTrusted() || vaultPermissions != null
+        || !policy.getVerdict(usedVersion).isDenied();
+
+    final boolean enforced;
+    if (!verdict.isDenied()) {
+      if (!decidedOnLogin && PlayerVersionDecisionEvent.hasListeners()) {
+        callDecision(player.getName(), usedVersion, verdict, false);
+      }
+      enforced = true;
+
+    } else {
+      enforced = !overridden && (!PlayerVersionDecisionEvent.hasListeners()
+          || callDecision(player.getName(), usedVersion, verdict, false));
+    }
+
+    if (!enforced) {
+      // another plugin let the player join
+
+    } else if (verdict == Verdict.BLACKLISTED) {
+      e.setJoinMessage(null);
+      e.getPlayer().kickPlayer(
+          config.getMessage(MessageKind.BLACKLIST, player.getLocale(), usedVersion));
+
+    } else if (verdict == Verdict.NOT_WHITELISTED) {
+      e.setJoinMessage(null);
+      e.getPlayer().kickPlayer(
+          config.getMessage(MessageKind.WHITELIST, player.getLocale(), usedVersion));
+
+    } else if (verdict == Verdict.BYPASSED) {
+      handleRemindPlayer(player);
+    }
+
+    // null if it is disabled
+    if (recommendedVersion != null) {
+      if (usedVersion != recommendedVersion) {
+        final UUID playerId = player.getUniqueId();
+        Bukkit.getScheduler().runTaskLater(parentInstance, () -> {
+          final Player onlinePlayer = Bukkit.getPlayer(playerId);
+          if (onlinePlayer != null) {
+            parentInstance.getVersionReminder().remindPlayer(onlinePlayer);
+          }
+        }, MESSAGE_DELAY);
+      }
+    }
+  }
+
+  /*
+   * A bypass is only known for the checked version. It is enough,
+   * since the player uses the same version on every server of the host.
+   */
+  private void rememberBypass(@Nonnull String playerName, @Nonnull CompiledPolicy policy,
+      @Nonnull ProtocolVersion usedVersion, @Nonnull Verdict verdict) {
+
+    final boolean bypassed = verdict == Verdict.BYPASSED;
+    final boolean blacklisted = policy.isBlacklisted(usedVersion);
+
+    parentInstance.getBypassCache()
+        .put(playerName, bypassed && !blacklisted, bypassed && blacklisted);
+  }
+
+  /*
+   * Returns whether the verdict should be enforced.
+   */
+  private static boolean callDecision(@Nonnull String playerName,
+      @Nonnull ProtocolVersion usedVersion, @Nonnull Verdict verdict, boolean async) {
+
+    final PlayerVersionDecisionEvent event = new PlayerVersionDecisionEvent(playerName,
+        usedVersion, verdict, async);
+    Bukkit.getPluginManager().callEvent(event);
+    return !event.isCancelled();
+  }
+
+  /*
+   * The task holds the id of the player instead of the player,
+   * so a player who quits before it runs is not retained.
+   */
+  private void handleRemindPlayer(@Nonnull final Player player) {
+    final UUID playerId = player.getUniqueId();
+    Bukkit.getScheduler().runTaskLater(parentInstance, () -> {
+      final Player onlinePlayer = Bukkit.getPlayer(playerId);
+      if (onlinePlayer != null) {
+        parentInstance.getVersionReminder().recommendPlayer(onlinePlayer);
+      }
+    }, MESSAGE_DELAY);
+  }
+
+  /*
+   * monitor priority is used to count the player after all other plugins,
+   * since the event can not be cancelled anyway. The version is not looked up
+   * again, since the connection may already be gone.
+   */
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onPlayerQuit(final PlayerQuitEvent e) {
+    parentInstance.getOnlineVersionCounter().quit(e.getPlayer().getUniqueId());
+  }
+}
@@ -0,0 +1,80 @@
+package com.aidn5.enchantedblockversion;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import javax.annotation.Nonnull;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Class counts the online players per {@link ProtocolVersion}. It is updated
+ * on join and quit, so reading it does not need to iterate the connections.
+ *
+ * <p>The version of every counted player is remembered by their id, since the
+ * connection of the player may already be gone when they quit.
+ *
+ * @author aidn5
+ *
+ * @see VersionHistory
+ */
+class OnlineVersionCounter {
+  @Nonnull
+  private final AtomicIntegerArray counts = new AtomicIntegerArray(
+      ProtocolVersion.values().length);
+
+  @Nonnull
+  private final Map<UUID, ProtocolVersion> versions = new ConcurrentHashMap<>();
+
+  /**
+   * Count a player who has joined.
+   *
+   * @param playerId
+   *          the id of the player.
+   * @param protocolVersion
+   *          the protocol the player uses.
+   */
+  void join(@Nonnull UUID playerId, @Nonnull ProtocolVersion protocolVersion) {
+    final ProtocolVersion previous = versions.put(playerId, protocolVersion);
+    if (previous != null) {
+      counts.decrementAndGet(previous.ordinal());
+    }
+    counts.incrementAndGet(protocolVersion.ordinal());
+  }
+
+  /**
+   * Count a player who has quit with the version they joined with.
+   *
+   * @param playerId
+   *          the id of the player.
+   */
+  void quit(@Nonnull UUID playerId) {
+    final ProtocolVersion protocolVersion = versions.remove(playerId);
+    if (protocolVersion != null) {
+      counts.decrementAndGet(protocolVersion.ordinal());
+    }
+  }
+
+  /**
+   * Forget all the counted players, e.g. when the plugin is disabled.
+   */
+  void reset() {
+    versions.clear();
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0);
+    }
+  }
+
+  /**
+   * Get the amount of the online players using a protocol.
+   *
+   * @param protocolVersion
+   *          the protocol to get its count.
+   * @return the amount of online players.
+   */
+  int get(@Nonnull ProtocolVersion protocolVersion) {
+    return counts.get(protocolVersion.ordinal());
+  }
+}
@@ -0,0 +1,32 @@
+package com.aidn5.enchantedblockversion;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Looks up the permissions of a subject (e.g. a player, an offline player or
+ * just a name) on whatever permission backend is available.
+ *
+ * <p>Implementations are kept in constants or fields and the subject is passed
+ * separately, so deciding a verdict does not create a new lookup every time.
+ *
+ * @param <T>
+ *          the type of the subject.
+ *
+ * @author aidn5
+ *
+ * @see CompiledPolicy#getVerdict(protocolsupport.api.ProtocolVersion, Object,
+ *      PermissionLookup)
+ */
+@FunctionalInterface
+public interface PermissionLookup<T> {
+  /**
+   * Check if the subject has a permission.
+   *
+   * @param subject
+   *          the subject to check.
+   * @param permission
+   *          the permission from {@link Permissions}.
+   * @return <code>true</code> if the subject has the permission.
+   */
+  boolean hasPermission(@Nonnull T subject, @Nonnull String permission);
+}
@@ -28,4 +28,8 @@ public class Permissions {
    * if they are connected using the bypass.
    */
   public static final String DISABLE_NOTIFY = "eblockversion.bypass.disableNotify";
+  /**
+   * allow to use the administration command <code>/ebv</code>.
+   */
+  public static final String ADMIN = "eblockversion.admin";
 }
@@ -0,0 +1,136 @@
+package com.aidn5.enchantedblockversion;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Called when the plugin has decided whether a player may join with their
+ * version. It is called once for every login, asynchronously on the login,
+ * with these exceptions:
+ * <ul>
+ * <li>If Vault is not installed, the permissions of a player using a denied
+ * version are not available on the login. The event is called synchronously
+ * on joining instead, with the verdict including the bypasses.</li>
+ * <li>If the proxy is trusted, the proxy has already denied the versions which
+ * are not allowed. The verdict is {@link Verdict#ALLOWED} or
+ * {@link Verdict#BYPASSED}.</li>
+ * <li>A player who is let in on the login but denied on joining (e.g. the
+ * permissions differ) is decided again on joining.</li>
+ * </ul>
+ *
+ * <p>Cancelling the event lets a denied player join. The join honours a login
+ * cancelled this way without calling the event again. Cancelling any other
+ * verdict has no effect.
+ *
+ * <p>The event is only created if any listener is registered, so it costs
+ * nothing on the login if nobody listens.
+ *
+ * @author aidn5
+ *
+ * @see PolicyService
+ */
+public class PlayerVersionDecisionEvent extends Event implements Cancellable {
+  private static final HandlerList HANDLERS = new HandlerList();
+
+  @Nonnull
+  private final String playerName;
+  @Nonnull
+  private final ProtocolVersion protocolVersion;
+  @Nonnull
+  private final Verdict verdict;
+  private boolean cancelled = false;
+
+  /**
+   * Constructor.
+   *
+   * @param playerName
+   *          the name of the player.
+   * @param protocolVersion
+   *          the protocol the player uses.
+   * @param verdict
+   *          the decided verdict.
+   * @param async
+   *          whether the event is called asynchronously.
+   */
+  public PlayerVersionDecisionEvent(@Nonnull String playerName,
+      @Nonnull ProtocolVersion protocolVersion, @Nonnull Verdict verdict, boolean async) {
+
+    super(async);
+    this.playerName = Objects.requireNonNull(playerName, "playerName must not be null");
+    this.protocolVersion = Objects
+        .requireNonNull(protocolVersion, "protocolVersion must not be null");
+    this.verdict = Objects.requireNonNull(verdict, "verdict must not be null");
+  }
+
+  /**
+   * Get the name of the player.
+   *
+   * @return the name of the player.
+   */
+  @Nonnull
+  public String getPlayerName() {
+    return playerName;
+  }
+
+  /**
+   * Get the protocol the player uses.
+   *
+   * @return the protocol of the player.
+   */
+  @Nonnull
+  public ProtocolVersion getProtocolVersion() {
+    return protocolVersion;
+  }
+
+  /**
+   * Get the decided verdict including the bypasses of the player.
+   *
+   * @return the verdict of the player.
+   */
+  @Nonnull
+  public Verdict getVerdict() {
+    return verdict;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  @Override
+  public void setCancelled(boolean cancel) {
+    this.cancelled = cancel;
+  }
+
+  @Override
+  @Nonnull
+  public HandlerList getHandlers() {
+    return HANDLERS;
+  }
+
+  /**
+   * Get the handlers of the event, required by Bukkit.
+   *
+   * @return the handlers of the event.
+   */
+  @Nonnull
+  public static HandlerList getHandlerList() {
+    return HANDLERS;
+  }
+
+  /**
+   * Check if any listener is registered, before creating the event.
+   *
+   * @return <code>true</code> if the event has listeners.
+   */
+  static boolean hasListeners() {
+    return HANDLERS.getRegisteredListeners().length > 0;
+  }
+}
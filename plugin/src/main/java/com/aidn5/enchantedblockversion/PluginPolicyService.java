@@ -0,0 +1,78 @@
+package com.aidn5.enchantedblockversion;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import org.bukkit.entity.Player;
+
+import protocolsupport.api.ProtocolSupportAPI;
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * The {@link PolicyService} registered by the plugin. It holds the
+ * configuration directly, since the instance lives as long as the plugin is
+ * enabled.
+ *
+ * @author aidn5
+ */
+class PluginPolicyService implements PolicyService {
+  /**
+   * Looks up the permissions of an online player.
+   */
+  private static final PermissionLookup<Player> PLAYER_PERMISSIONS = Player::hasPermission;
+
+  @Nonnull
+  private final Config config;
+
+  PluginPolicyService(@Nonnull Config config) throws NullPointerException {
+    this.config = Objects.requireNonNull(config, "config must not be null");
+  }
+
+  @Override
+  @Nonnull
+  public CompiledPolicy getPolicy() {
+    return config.getCompiledPolicy();
+  }
+
+  @Override
+  @Nonnull
+  public Verdict getVerdict(@Nonnull ProtocolVersion protocolVersion)
+      throws NullPointerException {
+
+    Objects.requireNonNull(protocolVersion, "protocolVersion must not be null");
+    return config.getCompiledPolicy().getVerdict(protocolVersion);
+  }
+
+  @Override
+  @Nonnull
+  public Verdict getVerdict(@Nonnull Player player) throws NullPointerException {
+    Objects.requireNonNull(player, "player must not be null");
+    return getVerdict(config.getCompiledPolicy(), player);
+  }
+
+  @Override
+  @Nonnull
+  public Map<Player, Verdict> getVerdicts(@Nonnull Collection<? extends Player> players)
+      throws NullPointerException {
+
+    Objects.requireNonNull(players, "players must not be null");
+    final CompiledPolicy policy = config.getCompiledPolicy();
+    final Map<Player, Verdict> verdicts = new HashMap<>((int) (players.size() / 0.75f) + 1);
+
+    for (Player player : players) {
+      Objects.requireNonNull(player, "players must not contain null");
+      verdicts.put(player, getVerdict(policy, player));
+    }
+    return verdicts;
+  }
+
+  @Nonnull
+  private static Verdict getVerdict(@Nonnull CompiledPolicy policy, @Nonnull Player player) {
+    final ProtocolVersion usedVersion = ProtocolSupportAPI.getProtocolVersion(player);
+    return policy.getVerdict(usedVersion, player, PLAYER_PERMISSIONS);
+  }
+}
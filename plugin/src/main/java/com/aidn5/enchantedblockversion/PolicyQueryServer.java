@@ -0,0 +1,229 @@
+package com.aidn5.enchantedblockversion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Class answers verdict queries from co-located processes (e.g. a proxy in
+ * front of several servers on the same host) over a loopback TCP connection.
+ * The answer is computed from the {@link CompiledPolicy} of the server and the
+ * bypasses remembered by {@link BypassCache}.
+ *
+ * <p>The format is binary and big-endian. A request is:
+ * <ul>
+ * <li><code>byte</code> opcode, always {@link #OPCODE_QUERY}</li>
+ * <li><code>int</code> the network protocol number of the client</li>
+ * <li><code>byte</code> length of the player name in bytes, <code>0</code> to
+ * ignore bypasses</li>
+ * <li>the player name encoded in UTF-8</li>
+ * </ul>
+ * The response is a single <code>byte</code>: the {@link Verdict#getCode()},
+ * or {@link #RESPONSE_UNAVAILABLE} if the plugin is not ready. Requests can be
+ * pipelined. Responses are sent in the same order of the requests. Any
+ * malformed request closes the connection.
+ *
+ * @author aidn5
+ *
+ * @see Config#isQueryServiceEnabled()
+ */
+class PolicyQueryServer {
+  static final int OPCODE_QUERY = 1;
+  static final int RESPONSE_UNAVAILABLE = 0xFF;
+
+  private static final int MAX_NAME_LENGTH = 16;
+  private static final int MAX_CONNECTIONS = 32;
+
+  @Nonnull
+  private final Supplier<CompiledPolicy> policySupplier;
+  @Nonnull
+  private final BypassCache bypassCache;
+  @Nonnull
+  private final Logger logger;
+  @Nonnull
+  private final ServerSocket serverSocket;
+  @Nonnull
+  private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+  private volatile boolean running = true;
+
+  /**
+   * Bind the server and start accepting connections.
+   *
+   * @param policySupplier
+   *          supplies the current policy, or <code>null</code> if the plugin
+   *          is not ready.
+   * @param bypassCache
+   *          the remembered bypasses of the players.
+   * @param logger
+   *          the logger to report a failure of the server to.
+   * @param address
+   *          the loopback address to bind to.
+   *
+   * @throws IOException
+   *           if the address could not be bound.
+   * @throws IllegalArgumentException
+   *           if the address is not a loopback address.
+   */
+  PolicyQueryServer(@Nonnull Supplier<CompiledPolicy> policySupplier,
+      @Nonnull BypassCache bypassCache, @Nonnull Logger logger,
+      @Nonnull InetSocketAddress address) throws IOException, IllegalArgumentException {
+
+    this.policySupplier = Objects
+        .requireNonNull(policySupplier, "policySupplier must not be null");
+    this.bypassCache = Objects.requireNonNull(bypassCache, "bypassCache must not be null");
+    this.logger = Objects.requireNonNull(logger, "logger must not be null");
+
+    if (address.getAddress() == null || !address.getAddress().isLoopbackAddress()) {
+      throw new IllegalArgumentException("only loopback addresses are allowed. '"
+          + address + "' is given.");
+    }
+
+    this.serverSocket = new ServerSocket();
+    this.serverSocket.bind(address);
+
+    Thread acceptThread = new Thread(this::acceptConnections,
+        "EnchantedBlockVersion-QueryServer");
+    acceptThread.setDaemon(true);
+    acceptThread.start();
+  }
+
+  /**
+   * Get the bound address, e.g. to get the port if <code>0</code> is given.
+   *
+   * @return the address the server listens on.
+   */
+  @Nonnull
+  InetSocketAddress getAddress() {
+    return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+  }
+
+  /**
+   * Close the server and all the open connections.
+   * The instance of this class will be useless. Create new instance if needed.
+   */
+  void shutdown() {
+    running = false;
+    closeQuietly(serverSocket);
+
+    for (Socket socket : connections) {
+      closeQuietly(socket);
+    }
+    connections.clear();
+  }
+
+  /**
+   * Answer a single query.
+   *
+   * @param protocolId
+   *          the network protocol number of the client.
+   * @param playerName
+   *          the name of the player, or <code>null</code> to ignore bypasses.
+   * @return the {@link Verdict#getCode()} or {@link #RESPONSE_UNAVAILABLE}.
+   */
+  int query(int protocolId, @Nullable String playerName) {
+    final CompiledPolicy policy = policySupplier.get();
+    if (policy == null) {
+      return RESPONSE_UNAVAILABLE;
+    }
+
+    final ProtocolVersion usedVersion = ProtocolVersions.fromId(protocolId);
+    final byte bypass = bypassCache.get(playerName);
+
+    return policy.getVerdict(usedVersion,
+        bypass == BypassCache.BYPASS_ALL,
+        bypass == BypassCache.BYPASS_BLACKLIST).getCode();
+  }
+
+  private void acceptConnections() {
+    while (running) {
+      final Socket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (IOException e) {
+        if (running) {
+          logger.log(Level.WARNING, "query service stopped", e);
+        }
+        return;
+      }
+
+      if (connections.size() >= MAX_CONNECTIONS
+          || !socket.getInetAddress().isLoopbackAddress()) {
+        closeQuietly(socket);
+        continue;
+      }
+
+      connections.add(socket);
+      Thread connectionThread = new Thread(() -> serve(socket),
+          "EnchantedBlockVersion-QueryConnection");
+      connectionThread.setDaemon(true);
+      connectionThread.start();
+    }
+  }
+
+  /*
+   * The output is only flushed when no further request is buffered,
+   * so a pipelined batch is answered with as few writes as possible.
+   */
+  private void serve(@Nonnull Socket socket) {
+    try {
+      socket.setTcpNoDelay(true);
+      final DataInputStream in = new DataInputStream(
+          new BufferedInputStream(socket.getInputStream()));
+      final OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+      final byte[] nameBuffer = new byte[MAX_NAME_LENGTH];
+
+      while (running) {
+        final int opcode = in.read();
+        if (opcode != OPCODE_QUERY) {
+          return; // end of stream or malformed request
+        }
+
+        final int protocolId = in.readInt();
+        final int nameLength = in.readUnsignedByte();
+        if (nameLength > MAX_NAME_LENGTH) {
+          return;
+        }
+        in.readFully(nameBuffer, 0, nameLength);
+
+        final String playerName = nameLength == 0 ? null
+            : new String(nameBuffer, 0, nameLength, StandardCharsets.UTF_8);
+
+        out.write(query(protocolId, playerName));
+        if (in.available() == 0) {
+          out.flush();
+        }
+      }
+    } catch (IOException ignored) {
+      // the client disconnected
+    } finally {
+      connections.remove(socket);
+      closeQuietly(socket);
+    }
+  }
+
+  private static void closeQuietly(@Nonnull Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException ignored) {
+      // nothing to do
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.aidn5.enchantedblockversion;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.bukkit.entity.Player;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Service of the whitelist and blacklist for other plugins. It is registered
+ * in Bukkit's services manager while the plugin is enabled:
+ *
+ * <pre>
+ * PolicyService service = Bukkit.getServicesManager().load(PolicyService.class);
+ * </pre>
+ *
+ * <p>Resolve the service once and keep it, instead of going through
+ * {@link EnchantedBlockVersion#getInstance()} on every call. Every query reads
+ * the current {@link CompiledPolicy} once. Use {@link #getPolicy()} to answer
+ * many queries from the same snapshot.
+ *
+ * <p>Listen to {@link PlayerVersionDecisionEvent} to be notified about the
+ * decisions made on login.
+ *
+ * @author aidn5
+ *
+ * @see CompiledPolicy
+ * @see PlayerVersionDecisionEvent
+ */
+public interface PolicyService {
+  /**
+   * Get the current whitelist and blacklist. The snapshot is immutable and
+   * is replaced as a whole on every reload.
+   *
+   * @return the current policy.
+   */
+  @Nonnull
+  CompiledPolicy getPolicy();
+
+  /**
+   * Get the verdict of a protocol without any bypass.
+   *
+   * @param protocolVersion
+   *          the protocol to check.
+   * @return the verdict, never {@link Verdict#BYPASSED}.
+   *
+   * @throws NullPointerException
+   *           if <code>protocolVersion</code> is <code>null</code>.
+   */
+  @Nonnull
+  Verdict getVerdict(@Nonnull ProtocolVersion protocolVersion) throws NullPointerException;
+
+  /**
+   * Get the verdict of an online player including their bypass permissions.
+   * The permissions are only checked if the version of the player is denied.
+   *
+   * @param player
+   *          the player to check.
+   * @return the verdict of the player.
+   *
+   * @throws NullPointerException
+   *           if <code>player</code> is <code>null</code>.
+   */
+  @Nonnull
+  Verdict getVerdict(@Nonnull Player player) throws NullPointerException;
+
+  /**
+   * Get the verdicts of many online players from the same snapshot.
+   *
+   * @param players
+   *          the players to check, e.g. {@link org.bukkit.Server#getOnlinePlayers()}.
+   * @return a new map of the players to their verdicts.
+   *
+   * @throws NullPointerException
+   *           if <code>players</code> or any of its players is <code>null</code>.
+   */
+  @Nonnull
+  Map<Player, Verdict> getVerdicts(@Nonnull Collection<? extends Player> players)
+      throws NullPointerException;
+}
@@ -0,0 +1,103 @@
+package com.aidn5.enchantedblockversion;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import protocolsupport.api.ProtocolType;
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Class contains static helpers to resolve {@link ProtocolVersion} from the
+ * representations used outside of ProtocolSupport. It does not depend on the
+ * server platform, so it is shared with the proxy module.
+ *
+ * @author aidn5
+ */
+public final class ProtocolVersions {
+  private ProtocolVersions() {
+    throw new AssertionError();
+  }
+
+  /*
+   * ProtocolVersion lists the newest versions first.
+   * Pre-netty versions can share the ids with the netty versions,
+   * so the first (newest) registered version wins.
+   * The ids are small, so a plain array avoids boxing on every lookup.
+   */
+  @Nonnull
+  private static final ProtocolVersion[] PC_IDS;
+  @Nonnull
+  private static final Map<String, ProtocolVersion> NAMES = new HashMap<>();
+
+  static {
+    int maxId = -1;
+    for (ProtocolVersion version : ProtocolVersion.values()) {
+      if (version.getType() == ProtocolType.PC) {
+        maxId = Math.max(maxId, version.getId());
+      }
+      NAMES.put(version.name(), version);
+    }
+
+    PC_IDS = new ProtocolVersion[maxId + 1];
+    for (ProtocolVersion version : ProtocolVersion.values()) {
+      if (version.getType() == ProtocolType.PC && version.getId() >= 0
+          && PC_IDS[version.getId()] == null) {
+
+        PC_IDS[version.getId()] = version;
+      }
+    }
+  }
+
+  /**
+   * Get the java edition protocol by its network protocol number, the one sent
+   * by the client in the handshake (e.g. <code>340</code> for 1.12.2).
+   *
+   * @param protocolId
+   *          the network protocol number.
+   * @return the protocol,
+   *         or {@link ProtocolVersion#UNKNOWN} if the number is not known.
+   */
+  @Nonnull
+  public static ProtocolVersion fromId(int protocolId) {
+    if (protocolId < 0 || protocolId >= PC_IDS.length || PC_IDS[protocolId] == null) {
+      return ProtocolVersion.UNKNOWN;
+    }
+    return PC_IDS[protocolId];
+  }
+
+  /**
+   * Get the protocol for the given <code>version</code>.
+   * This method support both version types, minecraft version like "1.12.2" and
+   * ProtocolSupport version from {@link ProtocolVersion} like "MINECRAFT_1_12_2".
+   * <code>null</code> is returned if no associated version is found.
+   * {@link ProtocolVersion#UNKNOWN} can be used if <code>null</code> is returned.
+   *
+   * @param version
+   *          the version of the protocol to get.
+   * @return the protocol in {@link ProtocolVersion},
+   *         or <code>null</code> if not found
+   *         or <code>version</code> is <code>null</code>.
+   *
+   * @see EnchantedBlockVersion#getProtocol(String)
+   */
+  @Nullable
+  public static ProtocolVersion parse(@Nullable String version) {
+    final String prefixEnum = "MINECRAFT_";
+
+    if (version == null || version.isEmpty()) {
+      return null;
+    }
+
+    // the version is protocol type like "MINECRAFT_1_12_2"
+    ProtocolVersion protocolVersion = NAMES.get(version);
+    if (protocolVersion != null) {
+      return protocolVersion;
+    }
+
+    // returns null if the versions is not registered
+    return NAMES.get(prefixEnum + version.replace('.', '_'));
+  }
+}
@@ -0,0 +1,27 @@
+package com.aidn5.enchantedblockversion;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Looks up a setting of <code>config.yml</code> by its path on whatever
+ * configuration api is loaded, e.g. <code>ConfigurationSection::get</code> on
+ * the server and <code>Configuration::get</code> on the proxy.
+ *
+ * @author aidn5
+ *
+ * @see CompiledPolicy#compile(SettingLookup)
+ */
+@FunctionalInterface
+public interface SettingLookup {
+  /**
+   * Get the value of a setting.
+   *
+   * @param path
+   *          the path of the setting (e.g. "whitelist.start").
+   * @return the value as parsed by the configuration api,
+   *         or <code>null</code> if it is not set.
+   */
+  @Nullable
+  Object get(@Nonnull String path);
+}
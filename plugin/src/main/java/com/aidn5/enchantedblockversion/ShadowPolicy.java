@@ -0,0 +1,136 @@
+package com.aidn5.enchantedblockversion;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Class evaluates a candidate policy next to the active one without enforcing
+ * it, to measure the impact of the candidate before applying it. The counters
+ * are striped ({@link LongAdder}) and indexed by
+ * {@link ProtocolVersion#ordinal()}, so concurrent logins do not contend.
+ *
+ * <p>Both policies are compared without bypasses, since the permissions are
+ * only looked up when the active policy denies the login.
+ *
+ * @author aidn5
+ *
+ * @see OnLoginListener
+ */
+class ShadowPolicy {
+  @Nonnull
+  private final CompiledPolicy candidate;
+  @Nonnull
+  private final String source;
+  private final long loadedAt = System.currentTimeMillis();
+
+  @Nonnull
+  private final LongAdder[] evaluated;
+  @Nonnull
+  private final LongAdder[] wouldDeny;
+  @Nonnull
+  private final LongAdder[] wouldAllow;
+
+  /**
+   * Constructor.
+   *
+   * @param candidate
+   *          the candidate policy to evaluate.
+   * @param source
+   *          where the candidate policy is loaded from, to show in the report.
+   */
+  ShadowPolicy(@Nonnull CompiledPolicy candidate, @Nonnull String source) {
+    this.candidate = Objects.requireNonNull(candidate, "candidate must not be null");
+    this.source = Objects.requireNonNull(source, "source must not be null");
+
+    final int versions = ProtocolVersion.values().length;
+    this.evaluated = new LongAdder[versions];
+    this.wouldDeny = new LongAdder[versions];
+    this.wouldAllow = new LongAdder[versions];
+    for (int i = 0; i < versions; i++) {
+      evaluated[i] = new LongAdder();
+      wouldDeny[i] = new LongAdder();
+      wouldAllow[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Evaluate the candidate for a login and record whether it disagrees with the
+   * active policy.
+   *
+   * @param protocolVersion
+   *          the protocol of the login.
+   * @param activeVerdict
+   *          the verdict of the active policy without bypasses.
+   */
+  void record(@Nonnull ProtocolVersion protocolVersion, @Nonnull Verdict activeVerdict) {
+    final int index = protocolVersion.ordinal();
+    final boolean activeDenied = activeVerdict.isDenied();
+    final boolean candidateDenied = candidate.getVerdict(protocolVersion).isDenied();
+
+    evaluated[index].increment();
+    if (candidateDenied && !activeDenied) {
+      wouldDeny[index].increment();
+
+    } else if (!candidateDenied && activeDenied) {
+      wouldAllow[index].increment();
+    }
+  }
+
+  /**
+   * Get where the candidate policy is loaded from.
+   *
+   * @return the source of the candidate.
+   */
+  @Nonnull
+  String getSource() {
+    return source;
+  }
+
+  /**
+   * Get the time the candidate has been loaded at.
+   *
+   * @return the time in milliseconds since epoch.
+   */
+  long getLoadedAt() {
+    return loadedAt;
+  }
+
+  /**
+   * Get the amount of evaluated logins using a protocol.
+   *
+   * @param protocolVersion
+   *          the protocol to get its count.
+   * @return the amount of evaluated logins.
+   */
+  long getEvaluated(@Nonnull ProtocolVersion protocolVersion) {
+    return evaluated[protocolVersion.ordinal()].sum();
+  }
+
+  /**
+   * Get the amount of logins the candidate would deny,
+   * but the active policy allows.
+   *
+   * @param protocolVersion
+   *          the protocol to get its count.
+   * @return the amount of newly denied logins.
+   */
+  long getWouldDeny(@Nonnull ProtocolVersion protocolVersion) {
+    return wouldDeny[protocolVersion.ordinal()].sum();
+  }
+
+  /**
+   * Get the amount of logins the candidate would allow,
+   * but the active policy denies.
+   *
+   * @param protocolVersion
+   *          the protocol to get its count.
+   * @return the amount of newly allowed logins.
+   */
+  long getWouldAllow(@Nonnull ProtocolVersion protocolVersion) {
+    return wouldAllow[protocolVersion.ordinal()].sum();
+  }
+}
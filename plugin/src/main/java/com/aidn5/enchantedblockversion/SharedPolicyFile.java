@@ -0,0 +1,222 @@
+package com.aidn5.enchantedblockversion;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Class shares one {@link CompiledPolicy} between all the servers of a fleet
+ * through a memory-mapped file. A server publishes the policy with
+ * {@link #publish(CompiledPolicy)} and every server polls
+ * {@link #pollChanged()}, which only reads the generation counter as long as
+ * nothing has changed.
+ *
+ * <p>The file has a fixed size of {@link #CAPACITY} bytes (big-endian):
+ * <ul>
+ * <li><code>int</code> magic, <code>int</code> format version</li>
+ * <li><code>long</code> generation. It is odd while a publisher is writing</li>
+ * <li><code>int</code> payload length, <code>int</code> CRC32 of the
+ * payload</li>
+ * <li>the payload written by {@link CompiledPolicy#encode(ByteBuffer)}</li>
+ * </ul>
+ * A reader only accepts a payload if the generation is even and unchanged
+ * after reading it and the checksum matches.
+ *
+ * @author aidn5
+ *
+ * @see Config#getSharedPolicyFile()
+ */
+class SharedPolicyFile implements Closeable {
+  static final int CAPACITY = 64 * 1024;
+
+  private static final int MAGIC = 0x45425650; // "EBVP"
+  private static final int FORMAT_VERSION = 1;
+
+  private static final int OFFSET_MAGIC = 0;
+  private static final int OFFSET_FORMAT = 4;
+  private static final int OFFSET_GENERATION = 8;
+  private static final int OFFSET_LENGTH = 16;
+  private static final int OFFSET_CHECKSUM = 20;
+  private static final int OFFSET_PAYLOAD = 24;
+
+  @Nonnull
+  private final FileChannel channel;
+  @Nonnull
+  private final MappedByteBuffer buffer;
+  private long appliedGeneration = -1;
+
+  /**
+   * Open (or create) and map the shared file.
+   *
+   * @param file
+   *          the shared file.
+   *
+   * @throws IOException
+   *           if the file could not be opened or it is not a policy file.
+   */
+  SharedPolicyFile(@Nonnull File file) throws IOException {
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    try (FileLock lock = channel.lock()) {
+      this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, CAPACITY);
+
+      if (buffer.getInt(OFFSET_MAGIC) == 0) {
+        buffer.putInt(OFFSET_MAGIC, MAGIC);
+        buffer.putInt(OFFSET_FORMAT, FORMAT_VERSION);
+
+      } else if (buffer.getInt(OFFSET_MAGIC) != MAGIC
+          || buffer.getInt(OFFSET_FORMAT) != FORMAT_VERSION) {
+
+        channel.close();
+        throw new IOException("'" + file + "' is not a policy file of this version.");
+      }
+    }
+  }
+
+  /**
+   * Get the current generation of the file. <code>0</code> means nothing has
+   * been published yet. An odd number means a publisher is writing.
+   *
+   * @return the generation counter.
+   */
+  long getGeneration() {
+    return buffer.getLong(OFFSET_GENERATION);
+  }
+
+  /**
+   * Read the policy if a newer one than the last returned one is published.
+   *
+   * @return the newly published policy,
+   *         or <code>null</code> if nothing has changed or the file is being
+   *         written at the moment.
+   */
+  @Nullable
+  synchronized CompiledPolicy pollChanged() {
+    final long generation = getGeneration();
+    if (generation == appliedGeneration) {
+      return null;
+    }
+
+    CompiledPolicy policy = read(generation);
+    if (policy != null) {
+      appliedGeneration = generation;
+    }
+    return policy;
+  }
+
+  /**
+   * Read the published policy regardless of the last returned one.
+   *
+   * @return the published policy,
+   *         or <code>null</code> if nothing is published or the file is being
+   *         written at the moment.
+   */
+  @Nullable
+  synchronized CompiledPolicy readCurrent() {
+    final long generation = getGeneration();
+
+    CompiledPolicy policy = read(generation);
+    if (policy != null) {
+      appliedGeneration = generation;
+    }
+    return policy;
+  }
+
+  /**
+   * Write the policy into the file and increase the generation, so all the
+   * servers pick it up on their next poll.
+   *
+   * @param policy
+   *          the policy to publish.
+   * @return the new generation.
+   *
+   * @throws IOException
+   *           if the file could not be locked or the policy does not fit.
+   */
+  synchronized long publish(@Nonnull CompiledPolicy policy) throws IOException {
+    final ByteBuffer payload = ByteBuffer.allocate(CAPACITY - OFFSET_PAYLOAD);
+    try {
+      policy.encode(payload);
+    } catch (BufferOverflowException e) {
+      throw new IOException("the policy is too big for the shared file", e);
+    }
+    payload.flip();
+
+    final CRC32 crc = new CRC32();
+    crc.update(payload.duplicate());
+
+    try (FileLock lock = channel.lock()) {
+      // an odd generation is left behind by a publisher which crashed
+      final long writingGeneration = getGeneration() | 1;
+
+      buffer.putLong(OFFSET_GENERATION, writingGeneration);
+      buffer.putInt(OFFSET_LENGTH, payload.remaining());
+      buffer.putInt(OFFSET_CHECKSUM, (int) crc.getValue());
+
+      ByteBuffer view = buffer.duplicate();
+      view.position(OFFSET_PAYLOAD);
+      view.put(payload);
+
+      buffer.putLong(OFFSET_GENERATION, writingGeneration + 1);
+      buffer.force();
+
+      return writingGeneration + 1;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  @Nullable
+  private CompiledPolicy read(long generation) {
+    if (generation == 0 || (generation & 1) != 0) {
+      return null;
+    }
+
+    final int length = buffer.getInt(OFFSET_LENGTH);
+    final int checksum = buffer.getInt(OFFSET_CHECKSUM);
+    if (length < 0 || length > CAPACITY - OFFSET_PAYLOAD) {
+      return null;
+    }
+
+    final byte[] payload = new byte[length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(OFFSET_PAYLOAD);
+    view.get(payload);
+
+    if (getGeneration() != generation) {
+      return null; // a publisher has started writing in the meanwhile
+    }
+
+    final CRC32 crc = new CRC32();
+    crc.update(payload, 0, length);
+    if ((int) crc.getValue() != checksum) {
+      return null;
+    }
+
+    try {
+      return CompiledPolicy.decode(ByteBuffer.wrap(payload));
+    } catch (BufferUnderflowException e) {
+      return null;
+    }
+  }
+}
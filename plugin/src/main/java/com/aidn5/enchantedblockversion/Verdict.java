@@ -0,0 +1,57 @@
+package com.aidn5.enchantedblockversion;
+
+/**
+ * The decision made for a protocol version (and optionally a player's bypass
+ * permissions) against the configured whitelist and blacklist.
+ *
+ * <p>Every verdict has a stable {@link #getCode()} which is used wherever the
+ * verdict leaves the JVM (e.g. {@link PolicyQueryServer}). Do not reorder the
+ * codes, since other processes depend on them.
+ *
+ * @author aidn5
+ *
+ * @see CompiledPolicy
+ */
+public enum Verdict {
+  /**
+   * the version is whitelisted and not blacklisted.
+   */
+  ALLOWED(0),
+  /**
+   * the version is not allowed, but the player has a bypass permission.
+   * The player should be reminded to change their version.
+   */
+  BYPASSED(1),
+  /**
+   * the version is blacklisted and the player has no bypass.
+   */
+  BLACKLISTED(2),
+  /**
+   * the version is not whitelisted and the player has no bypass.
+   */
+  NOT_WHITELISTED(3);
+
+  private final byte code;
+
+  Verdict(int code) {
+    this.code = (byte) code;
+  }
+
+  /**
+   * Get the stable code of the verdict used by the binary formats.
+   *
+   * @return the code of the verdict.
+   */
+  public byte getCode() {
+    return code;
+  }
+
+  /**
+   * Check if the verdict denies the login.
+   *
+   * @return <code>true</code> if the player must not join the server.
+   */
+  public boolean isDenied() {
+    return this == BLACKLISTED || this == NOT_WHITELISTED;
+  }
+}
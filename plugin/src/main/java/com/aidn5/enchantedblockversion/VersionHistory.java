@@ -0,0 +1,337 @@
+package com.aidn5.enchantedblockversion;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import protocolsupport.api.ProtocolType;
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Class records the amount of online players per {@link ProtocolVersion} into
+ * a round-robin file of a fixed size. Every sample is consolidated into all the
+ * {@link Tier}s, each keeping the average of its step in a ring of rows.
+ *
+ * <p>The file starts with a header (<code>int</code> magic, <code>int</code>
+ * format version, <code>int</code> column count and {@link #MAX_COLUMNS} names
+ * of {@link #NAME_SIZE} bytes). Every tier follows with its rows. A row is the
+ * <code>long</code> bucket (minutes since epoch divided by the step),
+ * <code>int</code> amount of samples and a <code>float</code> average per
+ * column. A row is only valid if its bucket is the expected one.
+ *
+ * <p>New versions of ProtocolSupport append their versions as new columns, as
+ * long as there is space left. A column of a version unknown to the installed
+ * ProtocolSupport keeps its stored name, so a downgrade does not erase it.
+ *
+ * @author aidn5
+ *
+ * @see OnlineVersionCounter
+ */
+class VersionHistory implements Closeable {
+  static final int MAX_COLUMNS = 64;
+  static final int NAME_SIZE = 32;
+
+  private static final int MAGIC = 0x45425648; // "EBVH"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 12 + MAX_COLUMNS * NAME_SIZE;
+  private static final int ROW_SIZE = 8 + 4 + MAX_COLUMNS * 4;
+
+  /**
+   * The resolutions of the history.
+   */
+  enum Tier {
+    /**
+     * one row per minute for one day.
+     */
+    MINUTE(1, 24 * 60),
+    /**
+     * one row per hour for five weeks.
+     */
+    HOUR(60, 35 * 24),
+    /**
+     * one row per day for two years.
+     */
+    DAY(24 * 60, 2 * 365);
+
+    private final int step;
+    private final int rows;
+
+    Tier(int step, int rows) {
+      this.step = step;
+      this.rows = rows;
+    }
+  }
+
+  /**
+   * The summary of a version over a period.
+   */
+  static class Summary {
+    /**
+     * the average amount of online players using the version.
+     */
+    final double average;
+    /**
+     * the share of the version of all online players, between 0 and 1.
+     */
+    final double share;
+    /**
+     * the amount of rows found for the period.
+     */
+    final int rows;
+
+    Summary(double average, double share, int rows) {
+      this.average = average;
+      this.share = share;
+      this.rows = rows;
+    }
+  }
+
+  @Nonnull
+  private final FileChannel channel;
+  @Nonnull
+  private final ProtocolVersion[] columns;
+  @Nonnull
+  private final byte[][] columnNames;
+  private final int columnCount;
+
+  private final long[] buckets = new long[Tier.values().length];
+  private final int[] samples = new int[Tier.values().length];
+  private final double[][] sums = new double[Tier.values().length][MAX_COLUMNS];
+  @Nonnull
+  private final ByteBuffer rowBuffer = ByteBuffer.allocate(ROW_SIZE);
+
+  /**
+   * Open (or create) the history file.
+   *
+   * @param file
+   *          the history file.
+   * @param epochMinute
+   *          the current time in minutes since epoch,
+   *          used to resume the current buckets.
+   *
+   * @throws IOException
+   *           if the file could not be opened or it is not a history file.
+   */
+  VersionHistory(@Nonnull File file, long epochMinute) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    try {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      channel.read(header, 0);
+      header.flip();
+
+      this.columns = new ProtocolVersion[MAX_COLUMNS];
+      this.columnNames = new byte[MAX_COLUMNS][];
+      int columnCount = 0;
+
+      if (header.remaining() == HEADER_SIZE) {
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+          throw new IOException("'" + file + "' is not a history file of this version.");
+        }
+
+        columnCount = Math.min(header.getInt(), MAX_COLUMNS);
+        for (int i = 0; i < columnCount; i++) {
+          final byte[] name = new byte[NAME_SIZE];
+          header.get(name);
+          columnNames[i] = name;
+          columns[i] = EnchantedBlockVersion
+              .getProtocol(new String(name, StandardCharsets.US_ASCII).trim());
+        }
+      }
+
+      for (ProtocolVersion version : ProtocolVersion.values()) {
+        if (version.getType() == ProtocolType.PC && columnCount < MAX_COLUMNS
+            && !Arrays.asList(columns).contains(version)) {
+
+          final byte[] name = new byte[NAME_SIZE];
+          final byte[] encoded = version.name().getBytes(StandardCharsets.US_ASCII);
+          System.arraycopy(encoded, 0, name, 0, Math.min(encoded.length, NAME_SIZE));
+          columnNames[columnCount] = name;
+          columns[columnCount++] = version;
+        }
+      }
+
+      this.columnCount = columnCount;
+      writeHeader();
+      resume(epochMinute);
+
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Record one sample into all the tiers.
+   *
+   * @param epochMinute
+   *          the time of the sample in minutes since epoch.
+   * @param counter
+   *          the counter to sample.
+   *
+   * @throws IOException
+   *           if the rows could not be written.
+   */
+  synchronized void sample(long epochMinute, @Nonnull OnlineVersionCounter counter)
+      throws IOException {
+
+    final int[] counts = new int[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      counts[i] = columns[i] != null ? counter.get(columns[i]) : 0;
+    }
+
+    for (Tier tier : Tier.values()) {
+      final int t = tier.ordinal();
+      final long bucket = epochMinute / tier.step;
+
+      if (bucket != buckets[t]) {
+        buckets[t] = bucket;
+        samples[t] = 0;
+        Arrays.fill(sums[t], 0);
+      }
+
+      samples[t]++;
+      for (int i = 0; i < columnCount; i++) {
+        sums[t][i] += counts[i];
+      }
+
+      rowBuffer.clear();
+      rowBuffer.putLong(bucket);
+      rowBuffer.putInt(samples[t]);
+      for (int i = 0; i < MAX_COLUMNS; i++) {
+        rowBuffer.putFloat((float) (sums[t][i] / samples[t]));
+      }
+      rowBuffer.flip();
+      channel.write(rowBuffer, rowPosition(tier, bucket));
+    }
+  }
+
+  /**
+   * Summarize the history of a version over the last buckets of a tier.
+   *
+   * @param tier
+   *          the tier to read.
+   * @param version
+   *          the version to summarize.
+   * @param period
+   *          the amount of the last buckets to read, including the current one.
+   * @param epochMinute
+   *          the current time in minutes since epoch.
+   * @return the summary,
+   *         or <code>null</code> if the version is not recorded.
+   *
+   * @throws IOException
+   *           if the rows could not be read.
+   */
+  @Nullable
+  synchronized Summary summarize(@Nonnull Tier tier, @Nonnull ProtocolVersion version,
+      int period, long epochMinute) throws IOException {
+
+    final int column = Arrays.asList(columns).indexOf(version);
+    if (column < 0) {
+      return null;
+    }
+
+    final long currentBucket = epochMinute / tier.step;
+    final ByteBuffer row = ByteBuffer.allocate(ROW_SIZE);
+    double versionSum = 0;
+    double totalSum = 0;
+    int rows = 0;
+
+    for (int i = 0; i < Math.min(period, tier.rows); i++) {
+      final long bucket = currentBucket - i;
+
+      row.clear();
+      channel.read(row, rowPosition(tier, bucket));
+      row.flip();
+      if (row.remaining() < ROW_SIZE || row.getLong() != bucket) {
+        continue; // no sample during that time
+      }
+      row.getInt();
+
+      for (int c = 0; c < columnCount; c++) {
+        final float average = row.getFloat();
+        totalSum += average;
+        if (c == column) {
+          versionSum += average;
+        }
+      }
+      rows++;
+    }
+
+    return new Summary(rows == 0 ? 0 : versionSum / rows,
+        totalSum == 0 ? 0 : versionSum / totalSum, rows);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private void writeHeader() throws IOException {
+    final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC);
+    header.putInt(FORMAT_VERSION);
+    header.putInt(columnCount);
+
+    for (int i = 0; i < MAX_COLUMNS; i++) {
+      header.put(columnNames[i] != null ? columnNames[i] : new byte[NAME_SIZE]);
+    }
+
+    header.flip();
+    channel.write(header, 0);
+
+    // allocate the whole file once, so the size never changes afterwards
+    final long size = rowPosition(Tier.DAY, Tier.DAY.rows - 1) + ROW_SIZE;
+    if (channel.size() < size) {
+      channel.write(ByteBuffer.allocate(1), size - 1);
+    }
+  }
+
+  /*
+   * The averages of the current buckets are stored with their amount of samples,
+   * so the sums can be restored after a restart.
+   */
+  private void resume(long epochMinute) throws IOException {
+    final ByteBuffer row = ByteBuffer.allocate(ROW_SIZE);
+
+    for (Tier tier : Tier.values()) {
+      final int t = tier.ordinal();
+      final long bucket = epochMinute / tier.step;
+      buckets[t] = bucket;
+
+      row.clear();
+      channel.read(row, rowPosition(tier, bucket));
+      row.flip();
+      if (row.remaining() < ROW_SIZE || row.getLong() != bucket) {
+        continue;
+      }
+
+      samples[t] = row.getInt();
+      for (int i = 0; i < MAX_COLUMNS; i++) {
+        sums[t][i] = (double) row.getFloat() * samples[t];
+      }
+    }
+  }
+
+  private static long rowPosition(@Nonnull Tier tier, long bucket) {
+    long position = HEADER_SIZE;
+    for (Tier previous : Tier.values()) {
+      if (previous == tier) {
+        break;
+      }
+      position += (long) previous.rows * ROW_SIZE;
+    }
+
+    return position + Math.floorMod(bucket, (long) tier.rows) * ROW_SIZE;
+  }
+}
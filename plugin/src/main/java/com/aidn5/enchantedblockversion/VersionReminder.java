@@ -3,13 +3,13 @@ package com.aidn5.enchantedblockversion;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 
 import protocolsupport.api.Connection;
 import protocolsupport.api.ProtocolSupportAPI;
@@ -21,18 +21,24 @@ import protocolsupport.api.ProtocolVersion;
  * server using not-allowed protocols by using their bypass permission.
  *
  * <p>The timer will be disabled if {@link Config#getRepeatBypassMessage()} is
- * smaller than <code>0</code>
+ * smaller than <code>0</code>. It runs on the server's scheduler, so it does
+ * not start a thread and is cancelled with the plugin's tasks on disable.
  *
  * @author aidn5
  *
  * @see Config#getRepeatBypassMessage()
- * @see Config#getBypassMessage()
+ * @see Config#getMessage(MessageKind, String, ProtocolVersion)
  */
 public class VersionReminder {
+  /**
+   * Delay in ticks before the first reminder.
+   */
+  private static final long FIRST_DELAY = 4;
+
   @Nonnull
   private final EnchantedBlockVersion pluginInstance;
-  @Nonnull
-  private final Timer schuduler = new Timer(true);
+  @Nullable
+  private final BukkitTask task;
   private final int repeat;
 
   VersionReminder(@Nonnull EnchantedBlockVersion pluginInstance) {
@@ -42,25 +48,22 @@ public class VersionReminder {
     repeat = pluginInstance.getConfigInstance().getRepeatBypassMessage();
 
     if (repeat <= 0) {
+      task = null;
       return;
     }
 
-    schuduler.schedule(new TimerTask() {
-      @Override
-      public void run() {
-        Bukkit.getScheduler().runTask(pluginInstance, () -> {
-          sendMessageToAll();
-        });
-      }
-    }, 200, repeat * 1000);
+    task = Bukkit.getScheduler().runTaskTimer(pluginInstance,
+        this::sendMessageToAll, FIRST_DELAY, repeat * 20L);
   }
 
   /**
-   * shutdown the thread and cancel all the scheduled tasks.
+   * cancel the scheduled reminders.
    * The instance of this class will be useless. Create new instance if needed.
    */
   void shutdown() {
-    schuduler.cancel();
+    if (task != null) {
+      task.cancel();
+    }
   }
 
   /**
@@ -72,11 +75,12 @@ public class VersionReminder {
    *
    * @see Config#getRepeatBypassMessage()
    * @see EnchantedBlockVersion#getConfigInstance()
-   * @see Config#getBypassMessage()
+   * @see Config#getMessage(MessageKind, String, ProtocolVersion)
    */
   public void remindPlayer(@Nonnull Player player) {
     if (repeat >= 0) {
-      player.sendMessage(pluginInstance.getConfigInstance().getBypassMessage());
+      player.sendMessage(pluginInstance.getConfigInstance().getMessage(MessageKind.BYPASS,
+          player.getLocale(), ProtocolSupportAPI.getProtocolVersion(player)));
     }
   }
 
@@ -88,15 +92,16 @@ public class VersionReminder {
    *          the player to notify/recommend
    *
    * @see Config#getRecommendedVersion()
-   * @see Config#getRecommendMessage()
+   * @see Config#getMessage(MessageKind, String, ProtocolVersion)
    * @see EnchantedBlockVersion#getConfigInstance()
    */
   public void recommendPlayer(@Nonnull Player player) {
-    player.sendMessage(pluginInstance.getConfigInstance().getRecommendMessage());
+    player.sendMessage(pluginInstance.getConfigInstance().getMessage(MessageKind.RECOMMEND,
+        player.getLocale(), ProtocolSupportAPI.getProtocolVersion(player)));
   }
 
   private void sendMessageToAll() {
-    final String bypassMessage = pluginInstance.getConfigInstance().getBypassMessage();
+    final Config config = pluginInstance.getConfigInstance();
     final List<Connection> connections = ProtocolSupportAPI.getConnections();
 
     for (Connection connection : connections) {
@@ -110,7 +115,8 @@ public class VersionReminder {
         if (player != null
             && !player.hasPermission(Permissions.DISABLE_NOTIFY)) {
 
-          player.sendMessage(bypassMessage);
+          player.sendMessage(config.getMessage(MessageKind.BYPASS,
+              player.getLocale(), protocolVersion));
         }
       }
     }
@@ -0,0 +1,190 @@
+package com.aidn5.enchantedblockversion;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+
+import javax.annotation.Nullable;
+
+import org.bukkit.entity.Player;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import enchantedblockversion.StandInServer;
+import enchantedblockversion.StandInServer.StandInPlugin;
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Budgets of the login decision of {@link OnLoginListener}, measured on the
+ * plugin enabled by a stand-in server. The test is in the package of the
+ * listener, since the listener is not a public api.
+ * <p>A stand-in player takes the place of the permission backend for the
+ * denied version. What the stand-in allocates per permission check is
+ * measured first and deducted, so only the plugin is held to the budget.
+ * <p>The allocation budgets can be changed with the system properties
+ * <code>ebv.budget.allowedBytes</code> and <code>ebv.budget.deniedBytes</code>.
+ * The time is only reported, unless <code>ebv.budget.nanos</code> is set,
+ * e.g. by the maven profile <code>budget</code>, since it depends on the
+ * machine.
+ */
+public class DecisionBudgetTests {
+  private static final int WARMUP = 200_000;
+  private static final int ITERATIONS = 1_000_000;
+
+  private static final long ALLOWED_BYTES = Long.getLong("ebv.budget.allowedBytes", 0);
+  private static final long DENIED_BYTES = Long.getLong("ebv.budget.deniedBytes", 0);
+  /**
+   * <code>0</code> to only report the time of a decision.
+   */
+  private static final long NANOS = Long.getLong("ebv.budget.nanos", 0);
+
+  private static StandInServer server;
+  private static StandInPlugin plugin;
+  private static OnLoginListener listener;
+  private static Player player;
+  private static Player bypasser;
+  private static com.sun.management.ThreadMXBean threadBean;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    server = StandInServer.install();
+    assumeTrue("another server is already set", server != null);
+
+    final File dataFolder = Files.createTempDirectory("ebv-budget").toFile();
+    plugin = server.enable(dataFolder);
+    // the getter is package private and not inherited outside of the package
+    listener = ((EnchantedBlockVersion) plugin).getOnLoginListener();
+    player = server.player("player", false);
+    bypasser = server.player("bypasser", true);
+
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+      threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      if (threadBean.isThreadAllocatedMemorySupported()) {
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+      } else {
+        threadBean = null;
+      }
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    if (plugin != null) {
+      server.disable(plugin);
+    }
+    plugin = null;
+    listener = null;
+    player = null;
+    bypasser = null;
+  }
+
+  @Test
+  public void testVerdicts() {
+    final ProtocolVersion allowed = ProtocolVersions.parse("1.12.2");
+    final ProtocolVersion blacklisted = ProtocolVersions.parse("1.9");
+
+    assertNull(listener.decideLogin(allowed, "player", null, true));
+    // without Vault, the join denies the player
+    assertNull(listener.decideLogin(blacklisted, "player", null, true));
+
+    final String denyMessage = listener.decideLogin(blacklisted, "player", player, true);
+    assertNotNull(denyMessage);
+    assertTrue(denyMessage, denyMessage.contains("1.9"));
+
+    assertNull(listener.decideLogin(blacklisted, "bypasser", bypasser, true));
+  }
+
+  @Test
+  public void testAllowedBudget() {
+    assertBudget("allowed", ProtocolVersions.parse("1.12.2"), "player", null, ALLOWED_BYTES);
+  }
+
+  @Test
+  public void testDeniedBudget() {
+    assertBudget("denied", ProtocolVersions.parse("1.9"), "player", player, DENIED_BYTES);
+  }
+
+  @Test
+  public void testBypassedBudget() {
+    assertBudget("bypassed", ProtocolVersions.parse("1.9"), "bypasser", bypasser,
+        DENIED_BYTES);
+  }
+
+  /*
+   * One decision is what a login does after resolving the protocol version.
+   */
+  private static int decide(ProtocolVersion version, String playerName,
+      @Nullable Player subject, int iterations) {
+
+    int sink = 0;
+    for (int i = 0; i < iterations; i++) {
+      final String denyMessage = listener.decideLogin(version, playerName, subject, true);
+      sink += denyMessage == null ? 1 : denyMessage.length();
+    }
+    return sink;
+  }
+
+  /*
+   * The bytes the stand-in player allocates for a permission check,
+   * e.g. the arguments of the proxy.
+   */
+  private static double permissionCheckBytes(long threadId) {
+    int sink = 0;
+    for (int i = 0; i < WARMUP; i++) {
+      sink += player.hasPermission(Permissions.BYPASS_ALL) ? 1 : 0;
+    }
+
+    final long start = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink += player.hasPermission(Permissions.BYPASS_ALL) ? 1 : 0;
+    }
+    final long allocated = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+    // keeps the JIT from removing the checks
+    assumeTrue(sink != Integer.MIN_VALUE);
+    return allocated / (double) ITERATIONS;
+  }
+
+  private static void assertBudget(String name, ProtocolVersion version, String playerName,
+      @Nullable Player subject, long bytesBudget) {
+
+    int sink = decide(version, playerName, subject, WARMUP);
+
+    if (threadBean != null) {
+      final long threadId = Thread.currentThread().getId();
+      final double checkBytes = permissionCheckBytes(threadId);
+      final long overheadStart = threadBean.getThreadAllocatedBytes(threadId);
+      final long overhead = threadBean.getThreadAllocatedBytes(threadId) - overheadStart;
+
+      final long checksStart = server.getPermissionChecks();
+      final long start = threadBean.getThreadAllocatedBytes(threadId);
+      sink += decide(version, playerName, subject, ITERATIONS);
+      final long allocated = threadBean.getThreadAllocatedBytes(threadId) - start - overhead;
+      final long checks = server.getPermissionChecks() - checksStart;
+
+      final long bytesPerDecision = (long) Math.max(0, allocated - checks * checkBytes)
+          / ITERATIONS;
+      assertTrue(name + " decision allocates " + bytesPerDecision + " bytes. budget is "
+          + bytesBudget, bytesPerDecision <= bytesBudget);
+    }
+
+    final long startTime = System.nanoTime();
+    sink += decide(version, playerName, subject, ITERATIONS);
+    final long nanosPerDecision = (System.nanoTime() - startTime) / ITERATIONS;
+    if (NANOS > 0) {
+      assertTrue(name + " decision takes " + nanosPerDecision + "ns. budget is " + NANOS + "ns",
+          nanosPerDecision <= NANOS);
+    } else {
+      System.out.println(name + " decision takes " + nanosPerDecision + "ns");
+    }
+
+    // keeps the JIT from removing the decisions
+    assumeTrue(sink != Integer.MIN_VALUE);
+  }
+}
@@ -0,0 +1,171 @@
+package com.aidn5.enchantedblockversion;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Round trips of the binary protocol of {@link PolicyQueryServer} over
+ * loopback. The test is in the package of the server, since the server is
+ * not a public api.
+ */
+public class PolicyQueryServerTests {
+  private static final int TIMEOUT = 5_000;
+  private static final int MAX_CONNECTIONS = 32;
+
+  private final AtomicReference<CompiledPolicy> policy = new AtomicReference<>();
+  private PolicyQueryServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    policy.set(new CompiledPolicy(
+        new HashSet<>(Arrays.asList(ProtocolVersion.getAllBetween(
+            ProtocolVersions.parse("1.8"), ProtocolVersions.parse("1.14.4")))),
+        new HashSet<>(Arrays.asList(ProtocolVersions.parse("1.9")))));
+
+    final BypassCache bypassCache = new BypassCache(16);
+    bypassCache.put("Bypasser", true, false);
+
+    server = new PolicyQueryServer(policy::get, bypassCache, Logger.getLogger("QueryTests"),
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+  }
+
+  @After
+  public void tearDown() {
+    server.shutdown();
+  }
+
+  @Test
+  public void testPipelinedQueries() throws IOException {
+    final ByteArrayOutputStream requests = new ByteArrayOutputStream();
+    writeQuery(requests, "1.12.2", "player");
+    writeQuery(requests, "1.9", "player");
+    writeQuery(requests, "1.7.5", null);
+    writeQuery(requests, "1.7.5", "bypasser");
+    writeQuery(requests, -1, null);
+
+    try (Socket socket = connect()) {
+      socket.getOutputStream().write(requests.toByteArray());
+      socket.getOutputStream().flush();
+
+      final byte[] responses = new byte[5];
+      new DataInputStream(socket.getInputStream()).readFully(responses);
+      assertArrayEquals(new byte[] {
+          Verdict.ALLOWED.getCode(),
+          Verdict.BLACKLISTED.getCode(),
+          Verdict.NOT_WHITELISTED.getCode(),
+          Verdict.BYPASSED.getCode(),
+          Verdict.NOT_WHITELISTED.getCode() }, responses);
+
+      // the connection stays open for the next batch
+      policy.set(null);
+      final ByteArrayOutputStream next = new ByteArrayOutputStream();
+      writeQuery(next, "1.12.2", null);
+      socket.getOutputStream().write(next.toByteArray());
+      assertEquals(PolicyQueryServer.RESPONSE_UNAVAILABLE, socket.getInputStream().read());
+    }
+  }
+
+  @Test
+  public void testOversizedName() throws IOException {
+    try (Socket socket = connect()) {
+      final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      out.writeByte(PolicyQueryServer.OPCODE_QUERY);
+      out.writeInt(ProtocolVersions.parse("1.12.2").getId());
+      out.writeByte(17);
+      out.write(new byte[17]);
+      out.flush();
+
+      assertClosed(socket.getInputStream());
+    }
+  }
+
+  @Test
+  public void testUnknownOpcode() throws IOException {
+    try (Socket socket = connect()) {
+      socket.getOutputStream().write(new byte[] { 2, 0, 0, 0, 0, 0 });
+      socket.getOutputStream().flush();
+
+      assertClosed(socket.getInputStream());
+    }
+  }
+
+  @Test
+  public void testConnectionCap() throws IOException {
+    final List<Socket> sockets = new ArrayList<>();
+    try {
+      for (int i = 0; i < MAX_CONNECTIONS; i++) {
+        sockets.add(connect());
+      }
+
+      // every allowed connection is answered
+      final ByteArrayOutputStream request = new ByteArrayOutputStream();
+      writeQuery(request, "1.12.2", null);
+      for (Socket socket : sockets) {
+        socket.getOutputStream().write(request.toByteArray());
+        assertEquals(Verdict.ALLOWED.getCode(), socket.getInputStream().read());
+      }
+
+      try (Socket rejected = connect()) {
+        assertClosed(rejected.getInputStream());
+      }
+    } finally {
+      for (Socket socket : sockets) {
+        socket.close();
+      }
+    }
+  }
+
+  private Socket connect() throws IOException {
+    final Socket socket = new Socket();
+    socket.connect(server.getAddress(), TIMEOUT);
+    socket.setSoTimeout(TIMEOUT);
+    return socket;
+  }
+
+  private static void assertClosed(InputStream in) throws IOException {
+    try {
+      assertEquals("the connection is not closed", -1, in.read());
+    } catch (java.net.SocketException e) {
+      // reset by the server, closed as well
+    }
+  }
+
+  private static void writeQuery(ByteArrayOutputStream requests, String version, String name)
+      throws IOException {
+    writeQuery(requests, ProtocolVersions.parse(version).getId(), name);
+  }
+
+  private static void writeQuery(ByteArrayOutputStream requests, int protocolId, String name)
+      throws IOException {
+    final DataOutputStream out = new DataOutputStream(requests);
+    final byte[] nameBytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+
+    out.writeByte(PolicyQueryServer.OPCODE_QUERY);
+    out.writeInt(protocolId);
+    out.writeByte(nameBytes.length);
+    out.write(nameBytes);
+    out.flush();
+  }
+}
@@ -0,0 +1,247 @@
+package enchantedblockversion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.aidn5.enchantedblockversion.CompiledPolicy;
+import com.aidn5.enchantedblockversion.PolicyService;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.ObjectName;
+
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import enchantedblockversion.StandInServer.StandInPlugin;
+
+/**
+ * Soak of the join, quit, reload and disable churn through the plugin's
+ * listeners against a stand-in server. Weak references and heap histograms
+ * check that no player, configuration, plugin or thread is retained after
+ * quit, reload or disable. The amount of join/quit cycles can be changed with
+ * the system property <code>ebv.soak.cycles</code>. The default is a short
+ * soak. The maven profile <code>soak</code> runs a long one.
+ */
+public class ChurnSoakTests {
+  private static final long CYCLES = Long.getLong("ebv.soak.cycles", 5_000);
+
+  private static final int RESIDENTS = 16;
+  private static final int BYPASS_EVERY = 7;
+  // relative to the cycles, so a short soak still reloads and restarts
+  private static final long SAMPLE_EVERY = Math.max(1, CYCLES / 100);
+  private static final long RELOAD_EVERY = Math.max(1, CYCLES / 20);
+  private static final long RESTART_EVERY = Math.max(1, CYCLES / 4);
+  /**
+   * more than the scheduled tasks of the plugin at any time,
+   * which are one reminder per join in the last second and the timers.
+   */
+  private static final int MAX_PENDING_TASKS = 64;
+  private static final int GC_ATTEMPTS = 20;
+
+  private static StandInServer server;
+  private static File dataFolder;
+  /**
+   * the enabled plugin. It is not held by any local variable,
+   * to check that it is collected after a restart.
+   */
+  private static StandInPlugin plugin;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    server = StandInServer.install();
+    assumeTrue("another server is already set", server != null);
+
+    dataFolder = Files.createTempDirectory("ebv-soak").toFile();
+  }
+
+  @Test
+  public void testChurn() throws Exception {
+    final Set<Thread> threadsBefore = Thread.getAllStackTraces().keySet();
+
+    enable();
+    final List<Player> residents = new ArrayList<>();
+    for (int i = 0; i < RESIDENTS; i++) {
+      residents.add(server.join("resident" + i, i % 2 == 0));
+    }
+
+    for (long cycle = 1; cycle <= CYCLES; cycle++) {
+      WeakReference<Player> quitPlayer = churn(cycle);
+
+      // checked before ticking, so the reminders of the player are still pending
+      if (quitPlayer != null) {
+        assertCollected("player who quit", quitPlayer);
+      }
+      server.scheduler.tick();
+
+      if (cycle % RELOAD_EVERY == 0) {
+        reload();
+      }
+      if (cycle % RESTART_EVERY == 0) {
+        restart();
+      }
+    }
+
+    assertTrue(server.scheduler.tasks.size() + " tasks are pending",
+        server.scheduler.tasks.size() <= MAX_PENDING_TASKS);
+
+    for (Player resident : residents) {
+      server.quit(resident);
+    }
+    residents.clear();
+    disable();
+
+    assertNoNewThreads(threadsBefore);
+
+    final Map<String, Long> histogram = liveInstances();
+    if (histogram != null) {
+      assertEquals("retained players", 0L,
+          count(histogram, StandInServer.StandInPlayer.class.getName()));
+      assertEquals("retained configurations", 0L,
+          count(histogram, "com.aidn5.enchantedblockversion.Config"));
+      assertEquals("retained reminders", 0L,
+          count(histogram, "com.aidn5.enchantedblockversion.VersionReminder"));
+      assertEquals("retained listeners", 0L,
+          count(histogram, "com.aidn5.enchantedblockversion.OnLoginListener"));
+      assertEquals("retained plugins", 0L, count(histogram, StandInPlugin.class.getName()));
+    }
+  }
+
+  /*
+   * Only a weak reference leaves this frame, so the player is not kept alive
+   * by a local variable.
+   */
+  private static WeakReference<Player> churn(long cycle) throws Exception {
+    final Player player = server.join("churn" + cycle, cycle % BYPASS_EVERY == 0);
+    server.quit(player);
+    return cycle % SAMPLE_EVERY == 0 ? new WeakReference<>(player) : null;
+  }
+
+  private static void reload() throws Exception {
+    final WeakReference<Object> oldReminder = new WeakReference<>(plugin.getVersionReminder());
+    final WeakReference<CompiledPolicy> oldPolicy = new WeakReference<>(
+        plugin.getPolicyService().getPolicy());
+
+    final List<String> replies = new ArrayList<>();
+    final PluginCommand command = plugin.getCommand("ebv");
+    assertNotNull("the command is not registered", command);
+    command.execute(StandInServer.sender(replies), "ebv", new String[] { "reload" });
+
+    assertTrue("reload failed: " + replies,
+        replies.size() == 1 && replies.get(0).contains("has been reloaded"));
+
+    // the scheduler drops the cancelled tasks on the next tick
+    server.scheduler.tick();
+    assertCollected("reminder of the previous configuration", oldReminder);
+    assertCollected("policy of the previous configuration", oldPolicy);
+  }
+
+  private static void restart() throws Exception {
+    final WeakReference<Object> oldPlugin = new WeakReference<>(plugin);
+    final WeakReference<Object> oldConfig = new WeakReference<>(plugin.getConfigInstance());
+    final WeakReference<Object> oldService = new WeakReference<>(plugin.getPolicyService());
+    final List<WeakReference<Object>> oldListeners = server.listenersOf(plugin);
+
+    disable();
+    assertNull("the service is still registered",
+        server.services.get(PolicyService.class));
+
+    enable();
+    assertCollected("disabled plugin", oldPlugin);
+    assertCollected("configuration of the disabled plugin", oldConfig);
+    assertCollected("service of the disabled plugin", oldService);
+    for (WeakReference<Object> oldListener : oldListeners) {
+      assertCollected("listener of the disabled plugin", oldListener);
+    }
+  }
+
+  private static void enable() throws Exception {
+    plugin = server.enable(dataFolder);
+    assertNotNull("the service is not registered",
+        server.services.get(PolicyService.class));
+  }
+
+  private static void disable() {
+    server.disable(plugin);
+    plugin = null;
+  }
+
+  private static void assertCollected(String name, WeakReference<?> reference) {
+    for (int i = 0; i < GC_ATTEMPTS && reference.get() != null; i++) {
+      System.gc();
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    assertNull(name + " is retained", reference.get());
+  }
+
+  private static void assertNoNewThreads(Set<Thread> threadsBefore) throws InterruptedException {
+    final List<String> newThreads = new ArrayList<>();
+
+    for (int i = 0; i < GC_ATTEMPTS; i++) {
+      newThreads.clear();
+      for (Thread thread : Thread.getAllStackTraces().keySet()) {
+        final ThreadGroup group = thread.getThreadGroup();
+        // jvm threads, e.g. "Attach Listener", are in the system group
+        if (!threadsBefore.contains(thread) && thread.isAlive()
+            && group != null && !group.getName().equals("system")) {
+          newThreads.add(thread.getName());
+        }
+      }
+      if (newThreads.isEmpty()) {
+        return;
+      }
+      Thread.sleep(50);
+    }
+    assertTrue("threads are still running: " + newThreads, newThreads.isEmpty());
+  }
+
+  /*
+   * The histogram of the live objects taken after a full gc.
+   * null if the jvm does not support it.
+   */
+  private static Map<String, Long> liveInstances() {
+    final String histogram;
+    try {
+      histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+          new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+          new Object[] { null }, new String[] { String[].class.getName() });
+    } catch (Exception e) {
+      return null;
+    }
+
+    final Map<String, Long> instances = new HashMap<>();
+    for (String line : histogram.split("\n")) {
+      // "   1:   42   1344  com.example.Class (module@version)"
+      final String[] columns = line.trim().split("\\s+");
+      if (columns.length >= 4 && columns[0].endsWith(":")) {
+        try {
+          instances.merge(columns[3], Long.parseLong(columns[1]), Long::sum);
+        } catch (NumberFormatException ignored) {
+          // not a row
+        }
+      }
+    }
+    return instances;
+  }
+
+  private static long count(Map<String, Long> histogram, String className) {
+    return histogram.getOrDefault(className, 0L);
+  }
+}
@@ -0,0 +1,484 @@
+package enchantedblockversion;
+
+import com.aidn5.enchantedblockversion.EnchantedBlockVersion;
+import com.aidn5.enchantedblockversion.Permissions;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Stand-in of the server, its scheduler, plugin manager and services manager,
+ * to load the plugin outside of a server. Bukkit accepts only one server per
+ * jvm, so all the tests share the instance of {@link #install()}.
+ */
+public class StandInServer {
+  private static StandInServer instance;
+
+  final Server proxy = newProxy(Server.class, this::handleServer);
+  final StandInScheduler scheduler = new StandInScheduler();
+  final Map<UUID, Player> online = new LinkedHashMap<>();
+  final List<Handler> listeners = new ArrayList<>();
+  final Map<Class<?>, Object> services = new HashMap<>();
+  final Map<Object, Plugin> serviceOwners = new HashMap<>();
+  final Logger logger = Logger.getLogger("StandInServer");
+
+  Plugin plugin;
+  PluginCommand command;
+  private long players = 0;
+  private long permissionChecks = 0;
+
+  private final PluginManager pluginManager = newProxy(PluginManager.class, (m, args) -> {
+    if (m.getName().equals("registerEvents")) {
+      register((Listener) args[0], (Plugin) args[1]);
+      return null;
+    }
+    if (m.getName().equals("callEvent")) {
+      call((Event) args[0]);
+      return null;
+    }
+    return defaultValue(m.getReturnType());
+  });
+
+  private final ServicesManager servicesManager = newProxy(ServicesManager.class, (m, args) -> {
+    switch (m.getName()) {
+      case "register":
+        services.put((Class<?>) args[0], args[1]);
+        serviceOwners.put(args[1], (Plugin) args[2]);
+        return null;
+      case "unregisterAll":
+        unregisterServices((Plugin) args[0]);
+        return null;
+      case "load":
+        return services.get(args[0]);
+      default:
+        // no registration: Vault is not installed
+        return defaultValue(m.getReturnType());
+    }
+  });
+
+  private StandInServer() {
+    logger.setUseParentHandlers(false);
+    logger.setLevel(Level.OFF);
+  }
+
+  /**
+   * Get the stand-in server and set it as Bukkit's server on the first call.
+   *
+   * @return the stand-in server,
+   *         or <code>null</code> if another server is already set.
+   */
+  public static synchronized StandInServer install() {
+    if (instance == null && Bukkit.getServer() == null) {
+      instance = new StandInServer();
+      Bukkit.setServer(instance.proxy);
+    }
+    return instance;
+  }
+
+  /**
+   * Load and enable the plugin.
+   *
+   * @param dataFolder
+   *          the folder of the plugin's files.
+   * @return the enabled plugin.
+   *
+   * @throws Exception
+   *           if the plugin could not be loaded.
+   */
+  @SuppressWarnings("deprecation")
+  public StandInPlugin enable(File dataFolder) throws Exception {
+    final PluginDescriptionFile description = new PluginDescriptionFile(
+        StandInServer.class.getResourceAsStream("/plugin.yml"));
+    final StandInPlugin enabled = new StandInPlugin(new JavaPluginLoader(proxy), description,
+        dataFolder, new File(dataFolder, "EnchantedBlockVersion.jar"));
+
+    plugin = enabled;
+    enabled.enable();
+    return enabled;
+  }
+
+  /**
+   * Disable the plugin in the same order as the server.
+   *
+   * @param disabled
+   *          the plugin to disable.
+   */
+  public void disable(StandInPlugin disabled) {
+    disabled.disable();
+    scheduler.cancelTasks(disabled);
+    unregisterServices(disabled);
+    listeners.removeIf(handler -> handler.plugin == disabled);
+    plugin = null;
+    command = null;
+  }
+
+  /**
+   * Create a player without joining the server.
+   *
+   * @param name
+   *          the name of the player.
+   * @param bypass
+   *          whether the player has the permission to bypass everything.
+   * @return the player.
+   */
+  public Player player(String name, boolean bypass) {
+    final UUID uniqueId = new UUID(0, ++players);
+    return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(),
+        new Class<?>[] { Player.class }, new StandInPlayer(this, name, uniqueId, bypass));
+  }
+
+  /**
+   * Get the amount of the permission checks of the players, e.g. to deduct
+   * what the stand-in players allocate from a measurement.
+   *
+   * @return the amount of the permission checks since the server is installed.
+   */
+  public long getPermissionChecks() {
+    return permissionChecks;
+  }
+
+  public Player join(String name, boolean bypass) throws Exception {
+    final Player player = player(name, bypass);
+
+    online.put(player.getUniqueId(), player);
+    call(new PlayerJoinEvent(player, name + " joined"));
+    return player;
+  }
+
+  public void quit(Player player) throws Exception {
+    call(new PlayerQuitEvent(player, player.getName() + " left"));
+    online.remove(player.getUniqueId());
+  }
+
+  void unregisterServices(Plugin owner) {
+    services.values().removeIf(service -> serviceOwners.get(service) == owner);
+    serviceOwners.values().removeIf(serviceOwner -> serviceOwner == owner);
+  }
+
+  List<WeakReference<Object>> listenersOf(Plugin owner) {
+    final List<WeakReference<Object>> references = new ArrayList<>();
+    for (Handler handler : listeners) {
+      if (handler.plugin == owner) {
+        references.add(new WeakReference<>(handler.listener));
+      }
+    }
+    return references;
+  }
+
+  static CommandSender sender(List<String> replies) {
+    return newProxy(CommandSender.class, (m, args) -> {
+      switch (m.getName()) {
+        case "sendMessage":
+          replies.add(String.valueOf(args[0]));
+          return null;
+        case "hasPermission":
+        case "isOp":
+          return true;
+        case "getName":
+          return "console";
+        default:
+          return defaultValue(m.getReturnType());
+      }
+    });
+  }
+
+  private Object handleServer(Method m, Object[] args) throws Exception {
+    switch (m.getName()) {
+      case "getScheduler":
+        return scheduler.proxy;
+      case "getPluginManager":
+        return pluginManager;
+      case "getServicesManager":
+        return servicesManager;
+      case "getOnlinePlayers":
+        return new ArrayList<>(online.values());
+      case "getPlayer":
+        return args[0] instanceof UUID ? online.get(args[0]) : null;
+      case "getLogger":
+        return logger;
+      case "getPluginCommand":
+        if (command == null && plugin != null) {
+          final Constructor<PluginCommand> constructor = PluginCommand.class
+              .getDeclaredConstructor(String.class, Plugin.class);
+          constructor.setAccessible(true);
+          command = constructor.newInstance("ebv", plugin);
+        }
+        return command;
+      case "getName":
+      case "getVersion":
+      case "getBukkitVersion":
+        return "stand-in";
+      default:
+        return defaultValue(m.getReturnType());
+    }
+  }
+
+  /*
+   * Same as the server: every method annotated with EventHandler,
+   * called by the order of its priority.
+   */
+  private void register(Listener listener, Plugin owner) {
+    for (Method method : listener.getClass().getMethods()) {
+      final EventHandler annotation = method.getAnnotation(EventHandler.class);
+      if (annotation != null && method.getParameterCount() == 1) {
+        method.setAccessible(true);
+        listeners.add(new Handler(owner, listener, method, annotation));
+      }
+    }
+    listeners.sort(Comparator.comparing(handler -> handler.annotation.priority()));
+  }
+
+  private void call(Event event) throws Exception {
+    for (Handler handler : listeners) {
+      if (handler.method.getParameterTypes()[0].isInstance(event)) {
+        try {
+          handler.method.invoke(handler.listener, event);
+        } catch (InvocationTargetException e) {
+          throw (Exception) e.getCause();
+        }
+      }
+    }
+  }
+
+  static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    } else if (type == void.class || !type.isPrimitive()) {
+      return null;
+    } else if (type == char.class) {
+      return '\0';
+    } else if (type == long.class) {
+      return 0L;
+    } else if (type == float.class) {
+      return 0F;
+    } else if (type == double.class) {
+      return 0D;
+    } else if (type == byte.class) {
+      return (byte) 0;
+    } else if (type == short.class) {
+      return (short) 0;
+    }
+    return 0;
+  }
+
+  /**
+   * The plugin loaded outside of a server.
+   */
+  public static class StandInPlugin extends EnchantedBlockVersion {
+    StandInPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder,
+        File file) {
+      super(loader, description, dataFolder, file);
+    }
+
+    void enable() {
+      setEnabled(true);
+    }
+
+    void disable() {
+      setEnabled(false);
+    }
+  }
+
+  /**
+   * Stand-in of an online player. Only the methods used by the plugin answer.
+   */
+  static class StandInPlayer implements InvocationHandler {
+    private final StandInServer server;
+    private final String name;
+    private final UUID uniqueId;
+    private final InetSocketAddress address;
+    private final boolean bypass;
+
+    StandInPlayer(StandInServer server, String name, UUID uniqueId, boolean bypass) {
+      this.server = server;
+      this.name = name;
+      this.uniqueId = uniqueId;
+      this.address = new InetSocketAddress(InetAddress.getLoopbackAddress(),
+          (int) (uniqueId.getLeastSignificantBits() % 65535) + 1);
+      this.bypass = bypass;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      switch (method.getName()) {
+        case "getName":
+        case "getDisplayName":
+        case "toString":
+          return name;
+        case "getUniqueId":
+          return uniqueId;
+        case "getAddress":
+          return address;
+        case "getLocale":
+          return "en_us";
+        case "isOnline":
+          return server.online.containsKey(uniqueId);
+        case "hasPermission":
+          server.permissionChecks++;
+          return bypass && Permissions.BYPASS_ALL.equals(args[0]);
+        case "hashCode":
+          return uniqueId.hashCode();
+        case "equals":
+          return proxy == args[0];
+        default:
+          return defaultValue(method.getReturnType());
+      }
+    }
+  }
+
+  private static class Handler {
+    final Plugin plugin;
+    final Listener listener;
+    final Method method;
+    final EventHandler annotation;
+
+    Handler(Plugin plugin, Listener listener, Method method, EventHandler annotation) {
+      this.plugin = plugin;
+      this.listener = listener;
+      this.method = method;
+      this.annotation = annotation;
+    }
+  }
+
+  /**
+   * Stand-in of the scheduler. It runs the due tasks, including the
+   * asynchronous ones, on {@link #tick()}.
+   */
+  static class StandInScheduler {
+    final BukkitScheduler proxy = newProxy(BukkitScheduler.class, this::handle);
+    final List<Task> tasks = new ArrayList<>();
+    private long currentTick = 0;
+    private int lastId = 0;
+
+    void tick() {
+      currentTick++;
+      for (Task task : new ArrayList<>(tasks)) {
+        if (!task.cancelled && task.nextTick <= currentTick) {
+          task.runnable.run();
+          if (task.period > 0) {
+            task.nextTick = currentTick + task.period;
+          } else {
+            task.cancelled = true;
+          }
+        }
+      }
+      tasks.removeIf(task -> task.cancelled);
+    }
+
+    void cancelTasks(Plugin owner) {
+      tasks.removeIf(task -> task.plugin == owner);
+    }
+
+    private Object handle(Method m, Object[] args) {
+      switch (m.getName()) {
+        case "runTask":
+        case "runTaskAsynchronously":
+          return schedule(args, 0, 0);
+        case "runTaskLater":
+        case "runTaskLaterAsynchronously":
+          return schedule(args, (long) args[2], 0);
+        case "runTaskTimer":
+        case "runTaskTimerAsynchronously":
+          return schedule(args, (long) args[2], Math.max(1, (long) args[3]));
+        case "cancelTasks":
+          cancelTasks((Plugin) args[0]);
+          return null;
+        default:
+          return defaultValue(m.getReturnType());
+      }
+    }
+
+    private BukkitTask schedule(Object[] args, long delay, long period) {
+      final Task task = new Task((Plugin) args[0], (Runnable) args[1],
+          currentTick + Math.max(1, delay), period, ++lastId);
+      tasks.add(task);
+
+      return newProxy(BukkitTask.class, (m, taskArgs) -> {
+        switch (m.getName()) {
+          case "cancel":
+            task.cancelled = true;
+            return null;
+          case "isCancelled":
+            return task.cancelled;
+          case "getTaskId":
+            return task.id;
+          case "getOwner":
+            return task.plugin;
+          default:
+            return defaultValue(m.getReturnType());
+        }
+      });
+    }
+  }
+
+  private static class Task {
+    final Plugin plugin;
+    final Runnable runnable;
+    final long period;
+    final int id;
+    long nextTick;
+    boolean cancelled = false;
+
+    Task(Plugin plugin, Runnable runnable, long nextTick, long period, int id) {
+      this.plugin = plugin;
+      this.runnable = runnable;
+      this.nextTick = nextTick;
+      this.period = period;
+      this.id = id;
+    }
+  }
+
+  private interface MethodHandler {
+    Object handle(Method method, Object[] args) throws Exception;
+  }
+
+  private static <T> T newProxy(Class<T> type, MethodHandler handler) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            case "toString":
+              return type.getSimpleName();
+            default:
+              return handler.handle(method, args);
+          }
+        }));
+  }
+}
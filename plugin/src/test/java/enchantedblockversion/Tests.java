@@ -0,0 +1,43 @@
+
+package enchantedblockversion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.aidn5.enchantedblockversion.EnchantedBlockVersion;
+import com.aidn5.enchantedblockversion.MessageRenderer;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import protocolsupport.api.ProtocolVersion;
+
+public class Tests {
+  @Test
+  public void testVersions() {
+    final String[] versions = new String[] { "1.7.5", "1.8", "1.12.2", "1.14.4" };
+    for (int i = 0; i < versions.length; i++) {
+      if (EnchantedBlockVersion.getProtocol(versions[i]) == null) {
+        fail("'" + versions[i] + "' is not parse-able.");
+      }
+    }
+  }
+
+  @Test
+  public void testRange() {
+    final ProtocolVersion start = EnchantedBlockVersion.getProtocol("1.8");
+    final ProtocolVersion end = EnchantedBlockVersion.getProtocol("1.14.4");
+    final ProtocolVersion old = EnchantedBlockVersion.getProtocol("1.7.5");
+    final ProtocolVersion inside = EnchantedBlockVersion.getProtocol("1.12.2");
+
+    assertEquals("1.8-1.14.4",
+        MessageRenderer.describeRange(start, end, Collections.emptySet()));
+    assertEquals("1.8-1.14.4, 1.7.5",
+        MessageRenderer.describeRange(start, end, Arrays.asList(inside, old)));
+    // the range is disabled
+    assertEquals("1.12.2, 1.7.5",
+        MessageRenderer.describeRange(null, null, Arrays.asList(inside, old)));
+  }
+}
@@ -0,0 +1,68 @@
+package com.aidn5.enchantedblockversion.proxy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.logging.Level;
+
+import javax.annotation.Nullable;
+
+import net.md_5.bungee.api.plugin.Plugin;
+
+/**
+ * Proxy plugin's main instance. It enforces the same <code>config.yml</code> of
+ * the server plugin on the first server connection of a player, so blocked
+ * clients never cost a backend connection. The bypasses are the permissions
+ * of the player on the proxy. Set <code>trustProxy</code> on the backends to
+ * let them trust the decision of the proxy.
+ *
+ * @author aidn5
+ *
+ * @see OnServerConnectListener
+ */
+public class EnchantedBlockVersionProxy extends Plugin {
+  @Nullable
+  private volatile ProxyConfig config = null;
+
+  @Override
+  public void onEnable() {
+    try {
+      config = ProxyConfig.load(saveDefaultConfig());
+    } catch (IOException | RuntimeException e) {
+      getLogger().log(Level.SEVERE, "could not load config.yml. nothing will be blocked", e);
+      return;
+    }
+
+    getProxy().getPluginManager().registerListener(this, new OnServerConnectListener(this));
+  }
+
+  @Override
+  public void onDisable() {
+    config = null;
+  }
+
+  /**
+   * Get the configuration instance of the plugin.
+   *
+   * @return the configuration instance of the plugin,
+   *         or <code>null</code> if the plugin is disabled.
+   */
+  @Nullable
+  ProxyConfig getConfigInstance() {
+    return config;
+  }
+
+  private File saveDefaultConfig() throws IOException {
+    File file = new File(getDataFolder(), "config.yml");
+
+    if (!file.exists()) {
+      getDataFolder().mkdirs();
+      try (InputStream in = getResourceAsStream("config.yml")) {
+        Files.copy(in, file.toPath());
+      }
+    }
+
+    return file;
+  }
+}
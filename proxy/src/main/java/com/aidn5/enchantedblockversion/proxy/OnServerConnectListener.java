@@ -0,0 +1,76 @@
+package com.aidn5.enchantedblockversion.proxy;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.enchantedblockversion.MessageKind;
+import com.aidn5.enchantedblockversion.PermissionLookup;
+import com.aidn5.enchantedblockversion.ProtocolVersions;
+import com.aidn5.enchantedblockversion.Verdict;
+
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.event.ServerConnectEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.event.EventHandler;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Class listens the first server connection of a player to deny the clients
+ * using a not-allowed version before any backend is connected.
+ *
+ * @author aidn5
+ */
+class OnServerConnectListener implements Listener {
+  /**
+   * Looks up the permissions of a player on the proxy, which asks the
+   * permission plugin of the proxy (e.g. LuckPerms) or the groups of the
+   * proxy's configuration.
+   */
+  private static final PermissionLookup<ProxiedPlayer> PLAYER_PERMISSIONS =
+      ProxiedPlayer::hasPermission;
+
+  @Nonnull
+  private final EnchantedBlockVersionProxy parentInstance;
+
+  OnServerConnectListener(@Nonnull EnchantedBlockVersionProxy parentInstance)
+      throws NullPointerException {
+
+    this.parentInstance = Objects
+        .requireNonNull(parentInstance, "parentInstance must not be null");
+  }
+
+  /*
+   * The pre-login only knows the username and the permission plugins load
+   * the player on the login, so the first server connection is the earliest
+   * stage with the permissions of the player. It is still before any
+   * backend is connected. Switching between the backends is not checked
+   * again, since the version does not change.
+   */
+  @EventHandler
+  public void onServerConnect(final ServerConnectEvent e) {
+    final ProxyConfig config = parentInstance.getConfigInstance();
+    final ProxiedPlayer player = e.getPlayer();
+    if (config == null || e.isCancelled() || player.getServer() != null) {
+      return;
+    }
+
+    final ProtocolVersion usedVersion = ProtocolVersions
+        .fromId(player.getPendingConnection().getVersion());
+    final Verdict verdict = config.getCompiledPolicy()
+        .getVerdict(usedVersion, player, PLAYER_PERMISSIONS);
+
+    if (verdict == Verdict.BLACKLISTED) {
+      e.setCancelled(true);
+      player.disconnect(TextComponent.fromLegacyText(
+          config.getMessage(MessageKind.BLACKLIST, usedVersion)));
+
+    } else if (verdict == Verdict.NOT_WHITELISTED) {
+      e.setCancelled(true);
+      player.disconnect(TextComponent.fromLegacyText(
+          config.getMessage(MessageKind.WHITELIST, usedVersion)));
+    }
+  }
+}
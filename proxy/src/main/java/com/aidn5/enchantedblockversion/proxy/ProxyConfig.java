@@ -0,0 +1,107 @@
+package com.aidn5.enchantedblockversion.proxy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.enchantedblockversion.CompiledPolicy;
+import com.aidn5.enchantedblockversion.MessageKind;
+import com.aidn5.enchantedblockversion.MessageRenderer;
+import com.aidn5.enchantedblockversion.ProtocolVersions;
+import com.aidn5.enchantedblockversion.SettingLookup;
+
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.config.Configuration;
+import net.md_5.bungee.config.ConfigurationProvider;
+import net.md_5.bungee.config.YamlConfiguration;
+
+import protocolsupport.api.ProtocolVersion;
+
+/**
+ * Class parses the same <code>config.yml</code> the server plugin uses and
+ * compiles it by the shared {@link CompiledPolicy#compile(SettingLookup)}. Only the settings which
+ * matter before a backend is connected are read.
+ *
+ * @author aidn5
+ */
+class ProxyConfig {
+  @Nonnull
+  private final CompiledPolicy compiledPolicy;
+  @Nonnull
+  private final MessageRenderer messageRenderer;
+
+  private ProxyConfig(@Nonnull CompiledPolicy compiledPolicy,
+      @Nonnull MessageRenderer messageRenderer) {
+
+    this.compiledPolicy = compiledPolicy;
+    this.messageRenderer = messageRenderer;
+  }
+
+  /**
+   * Get the compiled whitelist and blacklist.
+   *
+   * @return the compiled policy of the configuration.
+   */
+  @Nonnull
+  CompiledPolicy getCompiledPolicy() {
+    return compiledPolicy;
+  }
+
+  /**
+   * Render a message of the default locale, since the locale of the player is
+   * not known before the login.
+   *
+   * @param kind
+   *          the kind of the message.
+   * @param version
+   *          the version the player uses.
+   * @return the rendered message with the colors translated.
+   */
+  @Nonnull
+  String getMessage(@Nonnull MessageKind kind, @Nonnull ProtocolVersion version) {
+    return messageRenderer.render(kind, null, version);
+  }
+
+  /**
+   * Load and parse the configuration file.
+   *
+   * @param file
+   *          the <code>config.yml</code> to load.
+   * @return the parsed configuration.
+   *
+   * @throws IOException
+   *           if the file could not be read.
+   * @throws RuntimeException
+   *           if any setting is not valid.
+   */
+  @Nonnull
+  static ProxyConfig load(@Nonnull File file) throws IOException, RuntimeException {
+    final Configuration config = ConfigurationProvider
+        .getProvider(YamlConfiguration.class).load(file);
+    final SettingLookup settings = config::get;
+    final CompiledPolicy compiledPolicy = CompiledPolicy.compile(settings);
+
+    final Map<MessageKind, String> templates = new EnumMap<>(MessageKind.class);
+    for (MessageKind kind : MessageKind.values()) {
+      final String path = kind.getKey();
+      final String template = Objects.requireNonNull(config.getString(path, null),
+          path + " in config.yml must not be null.");
+
+      templates.put(kind, ChatColor.translateAlternateColorCodes('&', template));
+    }
+
+    final ProtocolVersion recommendedVersion = ProtocolVersions
+        .parse(config.getString("recommended.version", null));
+    final MessageRenderer messageRenderer = new MessageRenderer(
+        Collections.singletonMap(MessageRenderer.DEFAULT_LOCALE, templates),
+        recommendedVersion != null ? recommendedVersion.getName() : "",
+        CompiledPolicy.describeWhitelist(settings));
+
+    return new ProxyConfig(compiledPolicy, messageRenderer);
+  }
+}